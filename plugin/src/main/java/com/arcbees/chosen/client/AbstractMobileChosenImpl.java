@@ -152,6 +152,12 @@ public class AbstractMobileChosenImpl extends DesktopSingleChosenImpl {
         getDropdown().addClass(getCss().isOpen());
     }
 
+    @Override
+    protected boolean supportsVirtualScroll() {
+        // the results are scrolled inside a holder element
+        return false;
+    }
+
     private void searchResultMouseDown() {
         isResultClick = true;
     }
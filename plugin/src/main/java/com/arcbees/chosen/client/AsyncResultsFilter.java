@@ -0,0 +1,397 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.List;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+/**
+ * Base class of the filters that load their results asynchronously, typically from a server.
+ * <p/>
+ * The searches are debounced: {@link #query(String, int, Callback)} is only called once the user stopped typing for
+ * the configured delay. Each query receives a request token, incremented for each new search. The results received
+ * for a query superseded by a newer search are dropped, so a slow response never replaces the results of a more
+ * recent one. A loading message is displayed in the dropdown while waiting for the results.
+ * <p/>
+ * When {@link ChosenOptions#setResultsCacheSize(int)} is set, the results are cached by search text and no query is
+ * sent for the searches whose results are cached or can be computed from the complete results of a prefix.
+ * <p/>
+ * Large result sets can be loaded page by page, see {@link Callback#onPage(List, int)}. Paged results are not cached.
+ */
+public abstract class AsyncResultsFilter implements ResultsFilter {
+    /**
+     * Receive the results of a query.
+     */
+    public interface Callback {
+        /**
+         * Replace the results of the component. The array and options indexes of the items are assigned by the
+         * filter, they don't need to be set. Same as {@code onResults(items, false)}.
+         */
+        void onResults(List<SelectItem> items);
+
+        /**
+         * Replace the results of the component.
+         *
+         * @param items    the results
+         * @param complete true if {@code items} contains every result matching the search text, not only the first
+         *                 ones. The cache can then compute the results of the longer searches locally.
+         */
+        void onResults(List<SelectItem> items, boolean complete);
+
+        /**
+         * Replace the results of the component with their first page. The next pages are requested with
+         * {@link AsyncResultsFilter#queryPage(String, int, int, Callback)} when the user scrolls near the end of the
+         * results, and are appended to the results when they are passed to {@code onPage} or {@code onResults}, the
+         * latter meaning that there are no more pages. The groups of the options must be in the same page.
+         *
+         * @param items      the results of the page
+         * @param totalCount the total number of results or -1 if it is unknown. In this case, a page smaller than
+         *                   {@link AsyncResultsFilter#getPageSize()} is considered as the last one.
+         */
+        void onPage(List<SelectItem> items, int totalCount);
+
+        /**
+         * Stop waiting for the results, the previous results are kept.
+         */
+        void onFailure();
+    }
+
+    private static final int DEFAULT_DELAY = 250;
+
+    private final int delay;
+
+    private int requestToken;
+    private String lastSearchText;
+    private ResultsCache cache;
+    private int loadedCount;
+    private int loadedOptions;
+    private boolean morePages;
+    private boolean loadingPage;
+
+    protected AsyncResultsFilter() {
+        this(DEFAULT_DELAY);
+    }
+
+    /**
+     * @param delay time in milliseconds to wait after the last keystroke before querying the results
+     */
+    protected AsyncResultsFilter(int delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    public void filter(final String searchText, final ChosenImpl chosen, boolean isShowing) {
+        if (isShowing && searchText.equals(lastSearchText)) {
+            // keep the results of the last search
+            return;
+        }
+
+        lastSearchText = searchText;
+        morePages = false;
+        loadingPage = false;
+
+        final int token = ++requestToken;
+
+        ResultsCache.Entry entry = getCache(chosen) == null ? null
+                : cache.get(searchText, chosen.getOptions().isSearchContains());
+        if (entry != null) {
+            showResults(searchText, chosen, entry.getItems(), entry.getGroups());
+            return;
+        }
+
+        chosen.loading();
+
+        if (delay <= 0) {
+            query(searchText, token, new FilterCallback(searchText, chosen, token));
+            return;
+        }
+
+        Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+            @Override
+            public boolean execute() {
+                // only query the results of the last search
+                if (isCurrentRequest(token)) {
+                    query(searchText, token, new FilterCallback(searchText, chosen, token));
+                }
+
+                return false;
+            }
+        }, delay);
+    }
+
+    /**
+     * Forget the cached results, for instance when the data on the server has changed.
+     */
+    public void clearCache() {
+        cache = null;
+    }
+
+    /**
+     * Return the number of results expected in each page or 0 if the results are not paged. Only used to detect the
+     * last page when the total number of results is unknown.
+     */
+    protected int getPageSize() {
+        return 0;
+    }
+
+    /**
+     * Return {@code true} if the request identified by {@code token} has not been superseded by a newer search.
+     * Implementations can use it to abort a request whose results would be dropped.
+     */
+    protected boolean isCurrentRequest(int token) {
+        return token == requestToken;
+    }
+
+    /**
+     * Return {@code true} if {@code item}, a complete result of a shorter search, also matches {@code searchText}.
+     * Used to compute the results of a search from the cached results of one of its prefixes, so it must match the
+     * options like the server does: otherwise the results computed locally differ from the results of a query.
+     * <p/>
+     * The default implementation ignores the case and the accents and matches the text of the option, never its html.
+     * Without {@code searchContains}, {@code searchText} has to match the beginning of a word.
+     */
+    protected boolean matches(OptionItem item, String searchText, boolean searchContains) {
+        String text = item.getText() == null ? "" : SelectParser.toSearchText(item.getText());
+        String query = SelectParser.toSearchText(searchText);
+
+        if (searchContains || query.isEmpty()) {
+            return text.contains(query);
+        }
+
+        for (int start = text.indexOf(query); start != -1; start = text.indexOf(query, start + 1)) {
+            char previous = start == 0 ? ' ' : text.charAt(start - 1);
+            if (previous == ' ' || previous == '[') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Query the results matching {@code searchText} and pass them to {@code callback}.
+     *
+     * @param searchText   the text entered by the user
+     * @param requestToken token identifying the request, incremented for each search
+     * @param callback     the callback receiving the results
+     */
+    protected abstract void query(String searchText, int requestToken, Callback callback);
+
+    /**
+     * Query the next page of the results matching {@code searchText} and pass it to {@code callback}. Must be
+     * overridden by the filters using {@link Callback#onPage(List, int)}.
+     *
+     * @param searchText   the text entered by the user
+     * @param offset       number of results already loaded
+     * @param requestToken token identifying the request, the same as the token of the first page
+     * @param callback     the callback receiving the page
+     */
+    protected void queryPage(String searchText, int offset, int requestToken, Callback callback) {
+        callback.onFailure();
+    }
+
+    /**
+     * Request the next page of results, if any and if it isn't already being loaded.
+     */
+    void loadMore(ChosenImpl chosen) {
+        if (!morePages || loadingPage) {
+            return;
+        }
+
+        loadingPage = true;
+        chosen.loading();
+
+        queryPage(lastSearchText, loadedCount, requestToken, new PageCallback(chosen, requestToken));
+    }
+
+    private int[] findGroups(List<SelectItem> items) {
+        int[] groups = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            SelectItem item = items.get(i);
+            int group = item.isGroup() ? -1 : ((OptionItem) item).getGroupArrayIndex();
+
+            groups[i] = group >= 0 && group < items.size() && items.get(group).isGroup() ? group : -1;
+        }
+
+        return groups;
+    }
+
+    /**
+     * Assign the indexes of the items, placed after {@code start} items and {@code startOptions} options. Return the
+     * number of options in {@code items}.
+     */
+    private int indexItems(List<SelectItem> items, int[] groups, int start, int startOptions) {
+        int optionsIndex = startOptions;
+        for (int i = 0; i < items.size(); i++) {
+            SelectItem item = items.get(i);
+
+            if (item.isGroup()) {
+                item.arrayIndex = start + i;
+            } else {
+                OptionItem option = (OptionItem) item;
+                option.setArrayIndex(start + i);
+                option.setOptionsIndex(optionsIndex++);
+                option.setGroupArrayIndex(groups[i] == -1 ? -1 : start + groups[i]);
+            }
+        }
+
+        return optionsIndex - startOptions;
+    }
+
+    private void updatePages(int pageSize, int totalCount) {
+        if (totalCount >= 0) {
+            morePages = loadedCount < totalCount;
+        } else {
+            morePages = getPageSize() > 0 && pageSize >= getPageSize();
+        }
+    }
+
+    private ResultsCache getCache(ChosenImpl chosen) {
+        int cacheSize = chosen.getOptions().getResultsCacheSize();
+
+        if (cache == null && cacheSize > 0) {
+            cache = new ResultsCache(this, cacheSize, chosen.getOptions().getResultsCacheTimeToLive());
+        }
+
+        return cache;
+    }
+
+    private void showResults(String searchText, ChosenImpl chosen, List<SelectItem> items, int[] groups) {
+        // the indexes are assigned each time because the cached items are shared by several results
+        loadedOptions = indexItems(items, groups, 0, 0);
+        loadedCount = items.size();
+
+        List<SelectItem> selectItems = chosen.getSelectItems();
+        selectItems.clear();
+        selectItems.addAll(items);
+
+        chosen.loadingClear();
+        chosen.rebuildResultItems();
+
+        if (selectItems.isEmpty() && !searchText.isEmpty()) {
+            chosen.noResults(searchText);
+        } else {
+            chosen.winnowResultsSetHighlight();
+        }
+    }
+
+    private class FilterCallback implements Callback {
+        private final String searchText;
+        private final ChosenImpl chosen;
+        private final int token;
+
+        FilterCallback(String searchText, ChosenImpl chosen, int token) {
+            this.searchText = searchText;
+            this.chosen = chosen;
+            this.token = token;
+        }
+
+        @Override
+        public void onResults(List<SelectItem> items) {
+            onResults(items, false);
+        }
+
+        @Override
+        public void onResults(List<SelectItem> items, boolean complete) {
+            if (!isCurrentRequest(token)) {
+                return;
+            }
+
+            ResultsCache.Entry entry = new ResultsCache.Entry(items, findGroups(items), complete);
+            if (cache != null) {
+                cache.put(searchText, entry);
+            }
+
+            showResults(searchText, chosen, entry.getItems(), entry.getGroups());
+        }
+
+        @Override
+        public void onPage(List<SelectItem> items, int totalCount) {
+            if (!isCurrentRequest(token)) {
+                return;
+            }
+
+            showResults(searchText, chosen, items, findGroups(items));
+            updatePages(items.size(), totalCount);
+
+            // load the next page right away if the first one doesn't fill the dropdown
+            chosen.loadMoreResults();
+        }
+
+        @Override
+        public void onFailure() {
+            if (isCurrentRequest(token)) {
+                // search again the next time the dropdown is opened
+                lastSearchText = null;
+
+                chosen.loadingClear();
+            }
+        }
+    }
+
+    private class PageCallback implements Callback {
+        private final ChosenImpl chosen;
+        private final int token;
+
+        PageCallback(ChosenImpl chosen, int token) {
+            this.chosen = chosen;
+            this.token = token;
+        }
+
+        @Override
+        public void onResults(List<SelectItem> items) {
+            onPage(items, loadedCount + items.size());
+        }
+
+        @Override
+        public void onResults(List<SelectItem> items, boolean complete) {
+            onResults(items);
+        }
+
+        @Override
+        public void onPage(List<SelectItem> items, int totalCount) {
+            // the page of a superseded search
+            if (!isCurrentRequest(token)) {
+                return;
+            }
+
+            loadedOptions += indexItems(items, findGroups(items), loadedCount, loadedOptions);
+            loadedCount += items.size();
+            loadingPage = false;
+
+            chosen.loadingClear();
+            chosen.appendResultItems(items);
+
+            updatePages(items.size(), totalCount);
+
+            chosen.loadMoreResults();
+        }
+
+        @Override
+        public void onFailure() {
+            if (isCurrentRequest(token)) {
+                loadingPage = false;
+
+                chosen.loadingClear();
+            }
+        }
+    }
+}
@@ -16,10 +16,19 @@
 
 package com.arcbees.chosen.client;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.SelectElement;
+import com.google.gwt.query.client.Function;
 import com.google.gwt.query.client.GQuery;
 import com.google.gwt.query.client.plugins.Plugin;
+import com.google.gwt.user.client.Window;
 import com.google.web.bindery.event.shared.EventBus;
 
 /**
@@ -36,6 +45,12 @@ public class Chosen extends GQuery {
 
     public static final String CHOSEN_DATA_KEY = "chosen";
 
+    // incremental initialization waiting for the element, removed when the element is destroyed
+    private static final String PENDING_DATA_KEY = "chosen-pending";
+
+    // maximum duration of a step of an incremental initialization, in milliseconds
+    private static final int STEP_DURATION = 10;
+
     // Initialization
     public Chosen(GQuery gq) {
         super(gq);
@@ -53,14 +68,59 @@ public class Chosen extends GQuery {
         ChosenImplFactory factory = new ChosenImplFactory();
 
         for (Element e : elements()) {
+            chosen(factory, e, options, eventBus);
+        }
+        return this;
+    }
+
+    /**
+     * Initialize the components in several steps, giving the control back to the browser between each step, so that
+     * a page containing hundreds of select elements stays responsive. The select elements visible in the window are
+     * initialized first. The elements destroyed or removed from the document before their turn are skipped.
+     *
+     * @param onComplete called once all the components have been initialized, can be null
+     */
+    public Chosen chosenIncrementally(final ChosenOptions options, final EventBus eventBus,
+            final Function onComplete) {
+        final ChosenImplFactory factory = new ChosenImplFactory();
+        final List<Element> pending = sortVisibleFirst(elements());
+
+        RepeatingCommand command = new RepeatingCommand() {
+            private int next;
+
+            @Override
+            public boolean execute() {
+                Duration duration = new Duration();
+
+                while (next < pending.size()) {
+                    Element e = pending.get(next++);
+
+                    // skip the elements destroyed or handled by a newer initialization since this one started
+                    if ($(e).data(PENDING_DATA_KEY, RepeatingCommand.class) == this) {
+                        $(e).removeData(PENDING_DATA_KEY);
+
+                        if (Document.get().getBody().isOrHasChild(e)) {
+                            chosen(factory, e, options, eventBus);
+                        }
+                    }
+
+                    if (duration.elapsedMillis() > STEP_DURATION) {
+                        return next < pending.size();
+                    }
+                }
 
-            if ("select".equalsIgnoreCase(e.getTagName()) && !$(e).hasClass("chzn-done")) {
-                SelectElement selectElement = SelectElement.as(e);
-                ChosenImpl impl = factory.createChosenImpl(selectElement, options);
-                impl.init(selectElement, options, eventBus);
-                $(e).data(CHOSEN_DATA_KEY, impl);
+                if (onComplete != null) {
+                    onComplete.f();
+                }
+                return false;
             }
+        };
+
+        for (Element e : pending) {
+            $(e).data(PENDING_DATA_KEY, command);
         }
+        Scheduler.get().scheduleIncremental(command);
+
         return this;
     }
 
@@ -71,6 +131,8 @@ public class Chosen extends GQuery {
     public Chosen destroy() {
 
         for (Element e : elements()) {
+            // cancel the pending incremental initialization of the element
+            $(e).removeData(PENDING_DATA_KEY);
 
             ChosenImpl impl = $(e).data(CHOSEN_DATA_KEY, ChosenImpl.class);
 
@@ -78,6 +140,11 @@ public class Chosen extends GQuery {
                 impl.release();
                 $(e).removeData(CHOSEN_DATA_KEY);
             }
+
+            DeferredUpgrade upgrade = DeferredUpgrade.get(e);
+            if (upgrade != null) {
+                upgrade.cancel();
+            }
         }
         return this;
     }
@@ -104,4 +171,50 @@ public class Chosen extends GQuery {
         return this;
     }
 
+    private void chosen(ChosenImplFactory factory, Element e, ChosenOptions options, EventBus eventBus) {
+        // the element may have been initialized since an incremental initialization started
+        if (!"select".equalsIgnoreCase(e.getTagName()) || $(e).hasClass("chzn-done")
+                || DeferredUpgrade.get(e) != null) {
+            return;
+        }
+
+        SelectElement selectElement = SelectElement.as(e);
+
+        if (options.isUpgradeOnDemand()) {
+            new DeferredUpgrade(selectElement, options, eventBus).start();
+        } else {
+            init(factory, selectElement, options, eventBus);
+        }
+    }
+
+    /**
+     * Return the elements visible in the window, then the other ones, each in their original order. All the positions
+     * are read at once, before any component is created.
+     */
+    private List<Element> sortVisibleFirst(Element[] elements) {
+        int top = Window.getScrollTop();
+        int bottom = top + Window.getClientHeight();
+
+        List<Element> sorted = new ArrayList<Element>(elements.length);
+        List<Element> hidden = new ArrayList<Element>();
+
+        for (Element e : elements) {
+            boolean visible = e.getOffsetHeight() > 0 && e.getAbsoluteBottom() >= top && e.getAbsoluteTop() <= bottom;
+            (visible ? sorted : hidden).add(e);
+        }
+
+        sorted.addAll(hidden);
+        return sorted;
+    }
+
+    static ChosenImpl init(ChosenImplFactory factory, SelectElement selectElement, ChosenOptions options,
+            EventBus eventBus) {
+        ChosenImpl impl = factory.createChosenImpl(selectElement, options);
+
+        // stored first so that the handlers of the ready event can find the component
+        $(selectElement).data(CHOSEN_DATA_KEY, impl);
+        impl.init(selectElement, options, eventBus);
+
+        return impl;
+    }
 }
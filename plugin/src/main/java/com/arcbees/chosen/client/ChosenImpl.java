@@ -17,8 +17,12 @@
 package com.arcbees.chosen.client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import com.arcbees.chosen.client.SelectParser.GroupItem;
@@ -32,11 +36,13 @@ import com.arcbees.chosen.client.event.ShowingDropDownEvent;
 import com.arcbees.chosen.client.event.UpdatedEvent;
 import com.arcbees.chosen.client.resources.ChosenCss;
 import com.arcbees.chosen.client.resources.Resources;
+import com.google.gwt.animation.client.AnimationScheduler;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.InputElement;
+import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.NodeList;
 import com.google.gwt.dom.client.OptionElement;
 import com.google.gwt.dom.client.SelectElement;
@@ -73,6 +79,10 @@ public abstract class ChosenImpl {
     private static final int SHIFT = 16;
     private static final int CTRL = 17;
     private static final int ESCAPE = 27;
+    private static final int PAGE_UP = 33;
+    private static final int PAGE_DOWN = 34;
+    private static final int END = 35;
+    private static final int HOME = 36;
     private static final int UP_ARROW = 38;
     private static final int DOWN_ARROW = 40;
     private static final int LEFT_WINDOW_KEY = 91;
@@ -80,6 +90,13 @@ public abstract class ChosenImpl {
     private static final int HORIZONTAL_OFFSET = -9000;
     private static final int VERTICAL_OFFSET = -9000;
     private static final String DEFAULT_CONTAINER_ID = "chosen_container__";
+    // expando storing the result key of the item displayed by a result element
+    private static final String RESULT_KEY_PROPERTY = "__chosenKey";
+    // distance in pixels from the end of the results at which the next page of results is requested
+    private static final int LOAD_MORE_DISTANCE = 50;
+    private static final int VIRTUAL_SCROLL_BUFFER = 10;
+    private static final int VIRTUAL_SCROLL_DEFAULT_ROW_HEIGHT = 25;
+    private static final int VIRTUAL_SCROLL_DEFAULT_VISIBLE_ROWS = 20;
     private static final Set<Class<?>> INJECTED_RESOURCES = new HashSet<>();
     private static int idCounter;
 
@@ -105,14 +122,35 @@ public abstract class ChosenImpl {
     private boolean mouseOnContainer;
     private ChosenOptions options;
     private GQuery resultHighlight;
+    private OptionItem resultHighlightItem;
     private String resultsNoneFound;
     private GQuery searchField;
     private GQuery searchResults;
     private SelectElement selectElement;
-    private List<SelectItem> selectItems;
+    private List<SelectItem> selectItems = new ArrayList<SelectItem>();
+    // source the items have been copied from, null if they have been parsed from the select element
+    private OptionSource itemsSource;
     private GQuery selectedItem;
     private HandlerRegistration updateEventHandlerRegistration;
     private ResultsFilter resultsFilter;
+    private int resultsRevision;
+    private boolean resultsBuilt;
+    // true once the results deferred by the lazy mode have to be built
+    private boolean lazyResultsRequested;
+    private boolean searchPending;
+    private Element[] resultElements = new Element[0];
+    // array index of the item of each result key, see SelectItem#resultKey
+    private int[] resultKeyPositions = new int[0];
+    private int nextResultKey;
+    private boolean virtualScroll;
+    private List<SelectItem> resultRows = new ArrayList<SelectItem>();
+    private int[] resultRowIndexes = new int[0];
+    private boolean resultRowsDirty;
+    // options displayed by a RankingResultsFilter, in their order of relevance
+    private List<OptionItem> rankedResults;
+    private int virtualRowHeight;
+    private int virtualFirstRow;
+    private int virtualLastRow;
 
     public GQuery getContainer() {
         return container;
@@ -141,6 +179,10 @@ public abstract class ChosenImpl {
         return selectElement;
     }
 
+    /**
+     * Return the items parsed from the select element. The list is empty as long as the results haven't been built,
+     * see {@link ChosenOptions#setLazyResults(boolean)}.
+     */
     public List<SelectItem> getSelectItems() {
         return selectItems;
     }
@@ -227,6 +269,31 @@ public abstract class ChosenImpl {
             }
         });
 
+        if (virtualScroll) {
+            searchResults.scroll(new Function() {
+                @Override
+                public void f() {
+                    renderVirtualResults(false);
+                }
+            });
+        } else {
+            searchResults.scroll(new Function() {
+                @Override
+                public void f() {
+                    renderVisibleHighlights();
+                }
+            });
+        }
+
+        if (resultsFilter instanceof AsyncResultsFilter) {
+            searchResults.scroll(new Function() {
+                @Override
+                public void f() {
+                    loadMoreResults();
+                }
+            });
+        }
+
         if (eventBus != null) {
             updateEventHandlerRegistration =
                     eventBus.addHandler(UpdatedEvent.getType(), new UpdatedEvent.UpdatedHandler() {
@@ -474,6 +541,20 @@ public abstract class ChosenImpl {
         int stroke = e.getKeyCode();
         searchFieldScale(fWidth);
 
+        switch (stroke) {
+            case TAB:
+            case ENTER:
+            case UP_ARROW:
+            case DOWN_ARROW:
+            case PAGE_UP:
+            case PAGE_DOWN:
+            case HOME:
+            case END:
+                // select and navigate among the results of the last characters typed
+                flushSearch();
+                break;
+        }
+
         switch (stroke) {
             case TAB:
                 onTabKeydown(e);
@@ -494,6 +575,32 @@ public abstract class ChosenImpl {
             case DOWN_ARROW:
                 this.keydownArrow();
                 return false;
+
+            case PAGE_UP:
+                e.preventDefault();
+                keydownPage(-1);
+                return false;
+
+            case PAGE_DOWN:
+                e.preventDefault();
+                keydownPage(1);
+                return false;
+
+            case HOME:
+                if (resultsShowing) {
+                    e.preventDefault();
+                    resultDoHighlight(nextResult(-1, 1));
+                    return false;
+                }
+                return true;
+
+            case END:
+                if (resultsShowing) {
+                    e.preventDefault();
+                    highlightLastResult();
+                    return false;
+                }
+                return true;
         }
 
         return true;
@@ -505,7 +612,7 @@ public abstract class ChosenImpl {
 
     protected void onKeydownBackstroke() {
         resultClearHighlight();
-        resultsSearch();
+        requestSearch();
     }
 
     protected void onTabKeydown(Event e) {
@@ -521,10 +628,17 @@ public abstract class ChosenImpl {
     }
 
     protected void release() {
+        searchPending = false;
+
         if (updateEventHandlerRegistration != null) {
             updateEventHandlerRegistration.removeHandler();
             updateEventHandlerRegistration = null;
         }
+        // the worker of the filter isn't garbage collected with the component
+        if (resultsFilter instanceof WorkerResultsFilter) {
+            ((WorkerResultsFilter) resultsFilter).release();
+        }
+
         // empty the searchResult to speed up the container.remove()
         if (searchResults != null) {
             searchResults.html("");
@@ -542,6 +656,11 @@ public abstract class ChosenImpl {
     }
 
     protected void resultSelect(Event e) {
+        if (virtualScroll && resultHighlight == null && resultHighlightItem != null) {
+            // the highlighted result has been scrolled out of the rendered rows
+            resultDoHighlight(resultHighlightItem);
+        }
+
         if (resultHighlight != null) {
             GQuery high = resultHighlight;
 
@@ -574,9 +693,16 @@ public abstract class ChosenImpl {
     }
 
     protected OptionItem getOptionItem(GQuery result) {
-        String highId = result.attr("id");
-        int position = Integer.parseInt(highId.substring(highId.lastIndexOf("_") + 1));
-        return (OptionItem) selectItems.get(position);
+        int resultKey = result.get(0).getPropertyInt(RESULT_KEY_PROPERTY);
+        return (OptionItem) selectItems.get(resultKeyPositions[resultKey]);
+    }
+
+    /**
+     * Return the element displaying the item in the results or null if the item isn't rendered.
+     */
+    protected Element getResultElement(SelectItem item) {
+        int position = item.getArrayIndex();
+        return position < resultElements.length ? resultElements[position] : null;
     }
 
     protected void onResultSelected(OptionItem item, String newValue, String oldValue, boolean metaKeyPressed) {
@@ -598,17 +724,60 @@ public abstract class ChosenImpl {
         selectedValues.clear();
     }
 
+    /**
+     * Remove every choice before the results are rebuilt.
+     */
+    protected void clearChoices() {
+    }
+
+    /**
+     * Remove the choice of an item that is no longer selected after an update of the select element.
+     */
+    protected void removeChoice(OptionItem previous) {
+    }
+
     protected void resultsBuild(boolean init) {
         resultsBuild(init, defaultText, customFilter);
     }
 
     protected void resultsBuild(boolean init, String defaultText, boolean customFilter) {
-        selectItems = new SelectParser().parse(selectElement);
+        if (isLazyResults() && !resultsBuilt && !lazyResultsRequested) {
+            // only render the selection, the results are built when the dropdown is opened for the first time
+            clearChoices();
+            buildSelection(init);
+
+            // the results built on demand are not built in advance
+            if (init && !options.isResultsOnDemand()) {
+                scheduleIdle(new Scheduler.ScheduledCommand() {
+                    @Override
+                    public void execute() {
+                        if (!resultsBuilt && !activeField && !isDetached(container)) {
+                            buildLazyResults();
+                        }
+                    }
+                });
+            }
+            return;
+        }
+
+        List<SelectItem> items = parseItems();
+
+        if (!init && resultsBuilt && !customFilter) {
+            patchResultItems(items);
+            return;
+        }
+
+        resultsBuilt = true;
+        selectItems = items;
 
+        clearChoices();
         rebuildResultItems(init);
     }
 
     protected void resultsHide() {
+        // a pending search must not reopen the dropdown
+        searchPending = false;
+
         if (!resultsShowing) {
             return;
         }
@@ -627,6 +796,18 @@ public abstract class ChosenImpl {
         container.removeClass(css.resultAbove());
 
         resultsShowing = false;
+
+        if (isResultsOnDemand()) {
+            // once the current event has been handled, the results may still be used by the selection
+            Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+                @Override
+                public void execute() {
+                    if (!resultsShowing && resultsBuilt) {
+                        releaseResults();
+                    }
+                }
+            });
+        }
     }
 
     protected void resultsResetCleanup() {
@@ -643,7 +824,48 @@ public abstract class ChosenImpl {
         }
     }
 
+    /**
+     * Search the text of the search field, right away or coalesced with the next searches according to
+     * {@link ChosenOptions#getSearchDelay()}.
+     */
+    protected void requestSearch() {
+        int searchDelay = options.getSearchDelay();
+
+        if (searchDelay < 0) {
+            resultsSearch();
+            return;
+        }
+
+        if (searchPending) {
+            // the pending search will use the latest text of the search field
+            return;
+        }
+
+        searchPending = true;
+
+        if (searchDelay == 0) {
+            AnimationScheduler.get().requestAnimationFrame(new AnimationScheduler.AnimationCallback() {
+                @Override
+                public void execute(double timestamp) {
+                    flushSearch();
+                }
+            });
+        } else {
+            Scheduler.get().scheduleFixedDelay(new Scheduler.RepeatingCommand() {
+                @Override
+                public boolean execute() {
+                    flushSearch();
+                    return false;
+                }
+            }, searchDelay);
+        }
+    }
+
     protected boolean resultsShow() {
+        if (!resultsBuilt) {
+            buildLazyResults();
+        }
+
         if (!beforeShowResult()) {
             return false;
         }
@@ -690,6 +912,7 @@ public abstract class ChosenImpl {
                 $e.hasClass(css.activeResult()) ? $e : $e.parents("." + css.activeResult()).first();
         if (!target.isEmpty()) {
             resultHighlight = target;
+            resultHighlightItem = getOptionItem(target);
             resultSelect(e);
         }
 
@@ -715,6 +938,17 @@ public abstract class ChosenImpl {
         return true;
     }
 
+    protected boolean shouldActivateResult(OptionItem option) {
+        return true;
+    }
+
+    /**
+     * Return false if the implementation cannot render its results with {@link ChosenOptions#isVirtualScroll()}.
+     */
+    protected boolean supportsVirtualScroll() {
+        return true;
+    }
+
     protected void showSearchFieldDefault(String defaultText) {
         searchField.val("");
         searchField.removeClass(css.defaultClass());
@@ -726,7 +960,128 @@ public abstract class ChosenImpl {
         resultsBuild(false);
     }
 
+    /**
+     * Return a number incremented each time the state of the results is modified outside of the
+     * {@link ResultsFilter}. Filters can use it to know if the results of their previous pass are still reliable.
+     */
+    int getResultsRevision() {
+        return resultsRevision;
+    }
+
+    /**
+     * Return the shared source the current items have been copied from, or null if they have been parsed from the
+     * select element.
+     */
+    OptionSource getItemsSource() {
+        return itemsSource;
+    }
+
+    /**
+     * Execute the command once the browser is idle. Without requestIdleCallback, the command is not executed: the work
+     * is done when it's needed instead.
+     */
+    static native void scheduleIdle(Scheduler.ScheduledCommand command) /*-{
+        if ($wnd.requestIdleCallback) {
+            $wnd.requestIdleCallback($entry(function () {
+                command.@com.google.gwt.core.client.Scheduler.ScheduledCommand::execute()();
+            }));
+        }
+    }-*/;
+
+    void invalidateResults() {
+        resultsRevision++;
+        resultRowsDirty = true;
+        rankedResults = null;
+    }
+
+    /**
+     * Add items at the end of the results, for filters loading their results page by page. Only the elements of the
+     * new items are rendered.
+     */
+    void appendResultItems(List<SelectItem> items) {
+        invalidateResults();
+
+        SafeHtmlBuilder content = new SafeHtmlBuilder();
+        SafeHtmlBuilder optionsHtml = new SafeHtmlBuilder();
+        List<SelectItem> renderedItems = new ArrayList<SelectItem>();
+
+        Element[] newResultElements = new Element[selectItems.size() + items.size()];
+        System.arraycopy(resultElements, 0, newResultElements, 0,
+                Math.min(resultElements.length, newResultElements.length));
+        resultElements = newResultElements;
+
+        for (SelectItem item : items) {
+            selectItems.add(item);
+            renderResultItem(item, content, optionsHtml, renderedItems);
+        }
+
+        if (customFilter) {
+            $selectElement.append(optionsHtml.toSafeHtml().asString());
+        }
+
+        if (virtualScroll) {
+            renderVirtualResults(true);
+        } else {
+            GQuery elements = $(content.toSafeHtml().asString());
+            searchResults.append(elements);
+
+            for (int i = 0; i < renderedItems.size(); i++) {
+                bindResultElement(renderedItems.get(i), elements.get(i));
+            }
+        }
+
+        if (resultsShowing) {
+            positionDropdownResult();
+        }
+    }
+
+    /**
+     * Ask the filter for the next page of results if the results list is scrolled near its end.
+     */
+    void loadMoreResults() {
+        if (!resultsShowing || !(resultsFilter instanceof AsyncResultsFilter)) {
+            return;
+        }
+
+        Element results = searchResults.get(0);
+        if (results.getScrollTop() + results.getClientHeight() >= results.getScrollHeight() - LOAD_MORE_DISTANCE) {
+            ((AsyncResultsFilter) resultsFilter).loadMore(this);
+        }
+    }
+
+    void loading() {
+        noResultClear();
+
+        if (virtualScroll) {
+            renderVirtualResults(false);
+        }
+
+        GQuery loading = $(ChosenTemplate.templates.loading(css.noResults(), options.getLoadingText()).asString());
+        searchResults.append(loading);
+
+        if (resultsShowing) {
+            positionDropdownResult();
+        }
+    }
+
+    void loadingClear() {
+        noResultClear();
+    }
+
+    /**
+     * Display the given options in this order instead of the order of the select element, or the active results in
+     * their original order if {@code ranked} is null. Only used when the results are rendered on demand.
+     */
+    void setRankedResults(List<OptionItem> ranked) {
+        rankedResults = ranked;
+        resultRowsDirty = true;
+    }
+
     void noResults(String terms) {
+        if (virtualScroll) {
+            renderVirtualResults(false);
+        }
+
         GQuery noResults =
                 $(ChosenTemplate.templates.noResults(css.noResults(), resultsNoneFound).asString());
         noResults.find("span").html(terms);
@@ -735,6 +1090,12 @@ public abstract class ChosenImpl {
     }
 
     void positionDropdownResult() {
+        if (virtualScroll) {
+            renderVirtualResults(false);
+        } else {
+            renderVisibleHighlights();
+        }
+
         int ddTop = calculateDropdownTop();
         if (ddTop < 0) {
             dropdown.prepend(searchResults);
@@ -748,17 +1109,68 @@ public abstract class ChosenImpl {
         query.addClass(css.activeResult());
     }
 
+    /**
+     * Display the option in the results and highlight the part of its content matching the search. When the results
+     * are not rendered on demand, the highlight is only rendered once the result is near the visible part of the
+     * results list, see {@link #renderVisibleHighlights()}.
+     */
+    void resultActivate(OptionItem option, int matchStart, int matchLength) {
+        option.active = true;
+        option.matchStart = matchStart;
+        option.matchLength = matchLength;
+
+        resultRowsDirty = true;
+
+        if (!virtualScroll) {
+            Element result = getResultElement(option);
+            if (result != null) {
+                resultActivate($(result));
+            }
+        }
+    }
+
     void resultClearHighlight() {
         if (resultHighlight != null) {
             resultHighlight.removeClass(css.highlighted());
             resultHighlight = null;
         }
+        resultHighlightItem = null;
     }
 
     void resultDeactivate(GQuery query) {
         resultDeactivate(query, false);
     }
 
+    void resultDeactivate(OptionItem option) {
+        if (option == resultHighlightItem) {
+            resultClearHighlight();
+        }
+
+        option.active = false;
+
+        resultRowsDirty = true;
+
+        if (!virtualScroll) {
+            Element result = getResultElement(option);
+            if (result != null) {
+                resultDeactivate($(result));
+            }
+        }
+    }
+
+    void resultDisplayGroup(SelectItem group, boolean displayed) {
+        group.active = displayed;
+
+        resultRowsDirty = true;
+
+        if (!virtualScroll) {
+            Element result = getResultElement(group);
+            if (result != null) {
+                result.getStyle().setProperty("display", displayed ? "list-item" : "none");
+            }
+        }
+    }
+
     boolean searchResultsMouseOver(Event e) {
         Element targetEl = e.getEventTarget().cast();
         GQuery $e = $(targetEl);
@@ -778,11 +1190,28 @@ public abstract class ChosenImpl {
         } else {
             searchResults.find("." + css.resultSelected()).removeClass(css.resultSelected());
             selectedItem.removeClass(css.chznDefault());
+
+            for (SelectItem item : selectItems) {
+                if (!item.isGroup()) {
+                    ((OptionItem) item).setSelected(false);
+                }
+            }
         }
     }
 
     void winnowResultsSetHighlight() {
-        if (resultHighlight == null) {
+        if (virtualScroll) {
+            if (resultHighlightItem == null && !isMultiple()) {
+                renderVirtualResults(false);
+
+                for (SelectItem row : resultRows) {
+                    if (!row.isGroup() && ((OptionItem) row).isSelected()) {
+                        resultDoHighlight((OptionItem) row);
+                        break;
+                    }
+                }
+            }
+        } else if (resultHighlight == null) {
             GQuery selectedResults = querySelectedResults();
 
             GQuery doHigh =
@@ -795,14 +1224,19 @@ public abstract class ChosenImpl {
         }
     }
 
-    private void activateFirstResult() {
-        GQuery firstActive = getActiveResults().first();
-        resultDoHighlight(firstActive);
-    }
+    /**
+     * Give the item a key identifying its result element and its choice. The key of an item kept by an update of the
+     * select element doesn't change, so its elements don't have to be updated when other items are added or removed.
+     */
+    private void assignResultKey(SelectItem item, int resultKey) {
+        item.resultKey = resultKey;
 
-    private void activateLastResult() {
-        GQuery lastActive = getActiveResults().last();
-        resultDoHighlight(lastActive);
+        if (resultKey >= resultKeyPositions.length) {
+            int[] positions = new int[Math.max(resultKey + 1, 2 * resultKeyPositions.length)];
+            System.arraycopy(resultKeyPositions, 0, positions, 0, resultKeyPositions.length);
+            resultKeyPositions = positions;
+        }
+        resultKeyPositions[resultKey] = item.getArrayIndex();
     }
 
     private void blurTest() {
@@ -811,6 +1245,25 @@ public abstract class ChosenImpl {
         }
     }
 
+    private void bindResultElement(SelectItem item, Element element) {
+        resultElements[item.getArrayIndex()] = element;
+        element.setPropertyInt(RESULT_KEY_PROPERTY, item.resultKey);
+    }
+
+    private void bindVirtualHighlight() {
+        if (resultHighlightItem == null) {
+            return;
+        }
+
+        int row = getResultRow(resultHighlightItem);
+
+        if (row >= virtualFirstRow && row < virtualLastRow) {
+            resultHighlight = $(getResultElement(resultHighlightItem)).addClass(css.highlighted());
+        } else {
+            resultHighlight = null;
+        }
+    }
+
     private String buildContainerId() {
         String id;
         String selectElementId = selectElement.getId();
@@ -843,72 +1296,207 @@ public abstract class ChosenImpl {
         searchFieldScale(fWidth);
     }
 
-    private boolean containerMouseUp(Event e) {
-        Element target = e.getEventTarget().cast();
-
-        GQuery $e = $(target);
+    private String buildResultContent(OptionItem option) {
+        String content = option.getContent();
 
-        if (!$e.isEmpty() && "ABBR".equalsIgnoreCase($e.get(0).getNodeName()) && !isDisabled) {
-            resultsReset();
-            return false;
+        if (option.matchLength > 0) {
+            int matchEnd = option.matchStart + option.matchLength;
+            content = content.substring(0, option.matchStart) + "<em>"
+                    + content.substring(option.matchStart, matchEnd) + "</em>"
+                    + content.substring(matchEnd);
         }
 
-        return true;
+        return content;
     }
 
-    private SafeHtml createEmptyOption() {
-        SafeHtmlBuilder builder = new SafeHtmlBuilder();
-        builder.append(fromTrustedString("<option value=''></option>"));
-
-        return builder.toSafeHtml();
+    /**
+     * Build the results deferred by {@link ChosenOptions#isLazyResults()}.
+     */
+    private void buildLazyResults() {
+        lazyResultsRequested = true;
+        resultsBuild(false);
     }
 
-    private SafeHtml createOption(OptionItem item) {
-        SafeHtmlBuilder builder = new SafeHtmlBuilder();
-        builder.append(fromTrustedString("<option value='")).appendEscaped(item.getValue())
-                .append(fromTrustedString("'"));
-
-        if (item.isSelected()) {
-            builder.append(fromTrustedString(" selected"));
+    private void buildSelection(boolean init) {
+        if (selectedItem != null) {
+            selectedItem.toggleClass(css.chznDefault(), selectedValues.isEmpty());
         }
 
-        if (item.isDisabled()) {
-            builder.append(fromTrustedString(" disabled"));
-        }
+        selectedValues = new ArrayList<String>();
 
-        builder.append(fromTrustedString(">")).appendEscaped(item.getText());
-        builder.append(fromTrustedString("</option>"));
+        for (SelectItem item : new SelectParser().parseSelected(selectElement)) {
+            OptionItem optionItem = (OptionItem) item;
 
-        return builder.toSafeHtml();
-    }
+            if (!optionItem.isEmpty()) {
+                // the choices are added again with the results
+                optionItem.resultKey = optionItem.getArrayIndex();
+                addChoice(optionItem);
 
-    private void deselect(String value) {
-        List<String> newValues = new ArrayList<String>();
-        boolean found = false;
-        for (String s : selectedValues) {
-            if (found || !s.equals(value)) {
-                newValues.add(s);
-            } else {
-                // in case of the same item has been selected many times
-                found = true;
+                selectedValues.add(optionItem.getValue());
             }
         }
 
-        selectedValues = newValues;
+        setupSearchField(init);
     }
 
-    private void doSearch() {
-        Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
-            @Override
-            public void execute() {
-                resultsSearch();
+    private String buildResultClasses(OptionItem option) {
+        StringBuilder classes = buildOptionStyleClass(option);
+        if (classes.indexOf(css.activeResult()) == -1) {
+            if (!isMultiple() || !option.isSelected()) {
+                classes.append(" ").append(css.activeResult());
             }
-        });
+        }
+        return classes.toString().trim();
     }
 
-    private void finishSetup() {
-        $selectElement.addClass(css.chznDone(), "chzn-done");
-    }
+    private SafeHtml buildVirtualRow(SelectItem row) {
+        if (row.isGroup()) {
+            SafeStyles displayed = SafeStylesUtils.fromTrustedString("display: list-item;");
+            return ChosenTemplate.templates.group(row.getDomId(), css.groupResult(), displayed,
+                    ((GroupItem) row).getLabel());
+        }
+
+        OptionItem option = (OptionItem) row;
+
+        StringBuilder classes = buildOptionStyleClass(option);
+        if (classes.indexOf(css.activeResult()) == -1) {
+            classes.append(" ").append(css.activeResult());
+        }
+        if (option == resultHighlightItem) {
+            classes.append(" ").append(css.highlighted());
+        }
+
+        SafeStyles safeStyles = SafeStylesUtils.fromTrustedString(option.getStyle());
+        if (option.matchLength > 0 || (option.getHtml() != null && !option.getHtml().trim().isEmpty())) {
+            return ChosenTemplate.templates.option(option.getDomId(), classes.toString().trim(), safeStyles,
+                    fromTrustedString(buildResultContent(option)));
+        } else {
+            return ChosenTemplate.templates.option(option.getDomId(), classes.toString().trim(), safeStyles,
+                    option.getText());
+        }
+    }
+
+    /**
+     * Index the results currently displayed, in their display order, so that the keyboard navigation and the virtual
+     * scroll can jump directly to a given result.
+     */
+    private void buildResultRows() {
+        resultRows.clear();
+        resultRowIndexes = new int[selectItems.size()];
+
+        if (rankedResults != null) {
+            Arrays.fill(resultRowIndexes, -1);
+
+            for (OptionItem option : rankedResults) {
+                if (option.active) {
+                    resultRowIndexes[option.getArrayIndex()] = resultRows.size();
+                    resultRows.add(option);
+                }
+            }
+
+            resultRowsDirty = false;
+            return;
+        }
+
+        for (SelectItem item : selectItems) {
+            int row = -1;
+
+            if (item.active && (item.isGroup() || !isMultiple() || !((OptionItem) item).isSelected())) {
+                row = resultRows.size();
+                resultRows.add(item);
+            }
+
+            resultRowIndexes[item.getArrayIndex()] = row;
+        }
+
+        resultRowsDirty = false;
+    }
+
+    private SafeHtml buildVirtualSpacer(int height) {
+        SafeStyles styles = new SafeStylesBuilder()
+                .display(Style.Display.BLOCK)
+                .height(height, Style.Unit.PX)
+                .padding(0, Style.Unit.PX)
+                .toSafeStyles();
+        return ChosenTemplate.templates.spacer(styles);
+    }
+
+    private boolean containerMouseUp(Event e) {
+        Element target = e.getEventTarget().cast();
+
+        GQuery $e = $(target);
+
+        if (!$e.isEmpty() && "ABBR".equalsIgnoreCase($e.get(0).getNodeName()) && !isDisabled) {
+            resultsReset();
+            return false;
+        }
+
+        return true;
+    }
+
+    private SafeHtml createEmptyOption() {
+        SafeHtmlBuilder builder = new SafeHtmlBuilder();
+        builder.append(fromTrustedString("<option value=''></option>"));
+
+        return builder.toSafeHtml();
+    }
+
+    private SafeHtml createOption(OptionItem item) {
+        SafeHtmlBuilder builder = new SafeHtmlBuilder();
+        builder.append(fromTrustedString("<option value='")).appendEscaped(item.getValue())
+                .append(fromTrustedString("'"));
+
+        if (item.isSelected()) {
+            builder.append(fromTrustedString(" selected"));
+        }
+
+        if (item.isDisabled()) {
+            builder.append(fromTrustedString(" disabled"));
+        }
+
+        builder.append(fromTrustedString(">")).appendEscaped(item.getText());
+        builder.append(fromTrustedString("</option>"));
+
+        return builder.toSafeHtml();
+    }
+
+    private void deselect(String value) {
+        List<String> newValues = new ArrayList<String>();
+        boolean found = false;
+        for (String s : selectedValues) {
+            if (found || !s.equals(value)) {
+                newValues.add(s);
+            } else {
+                // in case of the same item has been selected many times
+                found = true;
+            }
+        }
+
+        selectedValues = newValues;
+    }
+
+    private void doSearch() {
+        Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+            @Override
+            public void execute() {
+                requestSearch();
+            }
+        });
+    }
+
+    private void finishSetup() {
+        $selectElement.addClass(css.chznDone(), "chzn-done");
+    }
+
+    /**
+     * Run the search requested by {@link #requestSearch()} if it hasn't run yet.
+     */
+    private void flushSearch() {
+        if (searchPending) {
+            searchPending = false;
+            resultsSearch();
+        }
+    }
 
     private String generateContainerId() {
         String id = DEFAULT_CONTAINER_ID + idCounter++;
@@ -920,8 +1508,52 @@ public abstract class ChosenImpl {
         return id;
     }
 
-    private GQuery getActiveResults() {
-        return searchResults.find("li." + css.activeResult());
+    /**
+     * Return the option of a choice: the option having the result key of the choice, or the first selected option
+     * having its value if the options have been parsed again since the choice was added.
+     */
+    private OptionItem findChoiceItem(int resultKey, String value) {
+        OptionItem selected = null;
+
+        for (SelectItem item : selectItems) {
+            if (item.isGroup() || !value.equals(((OptionItem) item).getValue())) {
+                continue;
+            }
+
+            OptionItem option = (OptionItem) item;
+            if (option.resultKey == resultKey) {
+                return option;
+            }
+            if (selected == null && option.isSelected()) {
+                selected = option;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Return the first row of the results whose bottom is below {@code offset}, relatively to the top of the content
+     * of the results list. The rows are in display order, so their positions are sorted.
+     */
+    private int findResultRowBelow(int offset) {
+        Element list = searchResults.get(0);
+        int contentTop = list.getAbsoluteTop() - list.getScrollTop();
+
+        int low = 0;
+        int high = resultRows.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Element element = getResultElement(resultRows.get(middle));
+
+            if (element != null && element.getAbsoluteBottom() - contentTop <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
     }
 
     private GQuery getFirstActive() {
@@ -934,6 +1566,45 @@ public abstract class ChosenImpl {
         return $();
     }
 
+    private void ensureResultRows() {
+        if (resultRowsDirty) {
+            if (virtualScroll) {
+                renderVirtualResults(true);
+            } else {
+                buildResultRows();
+            }
+        }
+    }
+
+    /**
+     * Return the number of results that fit in the visible part of the results list.
+     */
+    private int getResultsPageSize() {
+        int rowHeight = 0;
+        if (virtualScroll) {
+            rowHeight = getVirtualRowHeight();
+        } else if (resultHighlight != null) {
+            rowHeight = resultHighlight.outerHeight();
+        }
+
+        if (rowHeight <= 0) {
+            rowHeight = VIRTUAL_SCROLL_DEFAULT_ROW_HEIGHT;
+        }
+
+        return Math.max(1, searchResults.get(0).getClientHeight() / rowHeight);
+    }
+
+    private int getResultRow(OptionItem item) {
+        ensureResultRows();
+
+        int index = item.getArrayIndex();
+        return index < resultRowIndexes.length ? resultRowIndexes[index] : -1;
+    }
+
+    private int getVirtualRowHeight() {
+        return virtualRowHeight > 0 ? virtualRowHeight : VIRTUAL_SCROLL_DEFAULT_ROW_HEIGHT;
+    }
+
     private boolean inputBlur() {
         if (!mouseOnContainer) {
             activeField = false;
@@ -947,29 +1618,52 @@ public abstract class ChosenImpl {
         return false;
     }
 
+    private boolean isSameResult(SelectItem previous, SelectItem item) {
+        if (previous.isGroup() || item.isGroup()) {
+            return previous.isGroup() && item.isGroup() && previous.isDisabled() == item.isDisabled();
+        }
+
+        OptionItem previousOption = (OptionItem) previous;
+        OptionItem option = (OptionItem) item;
+
+        return previousOption.isEmpty() == option.isEmpty()
+                && previousOption.isDisabled() == option.isDisabled()
+                && (previousOption.getGroupArrayIndex() == -1) == (option.getGroupArrayIndex() == -1)
+                && Objects.equals(previousOption.getText(), option.getText())
+                && Objects.equals(previousOption.getHtml(), option.getHtml())
+                && Objects.equals(previousOption.getClasses(), option.getClasses())
+                && Objects.equals(previousOption.getStyle(), option.getStyle());
+    }
+
+    private boolean isSelectedOption(SelectItem item) {
+        return !item.isGroup() && !item.isEmpty() && ((OptionItem) item).isSelected();
+    }
+
     private boolean isDetached(GQuery element) {
         return element.parents().filter("body").isEmpty();
     }
 
-    private boolean isNotResultHighlighted() {
-        return resultHighlight == null || isDetached(resultHighlight);
+    /**
+     * Return true if the results are only built when the dropdown is shown.
+     */
+    private boolean isLazyResults() {
+        return options.isLazyResults() || isResultsOnDemand();
     }
 
-    private void keydownArrow() {
-        if (isNotResultHighlighted()) {
-            activateFirstResult();
-        } else if (resultsShowing) {
-            // TODO should be replaced by :
-            // GQuery nextSibling = resultHighlight.nextAll("li."+css.activeResult()).first();
-            // but performance is bad... See http://code.google.com/p/gwtquery/issues/detail?id=146
-
-            GQuery nextSibling = resultHighlight.next();
+    private boolean isResultsOnDemand() {
+        return options.isResultsOnDemand() && !customFilter;
+    }
 
-            while (!nextSibling.isEmpty() && !nextSibling.is("li." + css.activeResult())) {
-                nextSibling = nextSibling.next();
-            }
+    private void highlightLastResult() {
+        ensureResultRows();
+        resultDoHighlight(nextResult(resultRows.size(), -1));
+    }
 
-            resultDoHighlight(nextSibling);
+    private void keydownArrow() {
+        if (resultHighlightItem == null) {
+            resultDoHighlight(nextResult(-1, 1));
+        } else if (resultsShowing) {
+            resultDoHighlight(nextResult(getResultRow(resultHighlightItem), 1));
         }
 
         if (!resultsShowing) {
@@ -977,24 +1671,36 @@ public abstract class ChosenImpl {
         }
     }
 
-    private void keyupArrow() {
+    private void keydownPage(int direction) {
         if (!resultsShowing) {
             resultsShow();
-        } else if (isNotResultHighlighted()) {
-            activateLastResult();
-        } else if (resultHighlight != null) {
-            // TODO should be replaced by :
-            // GQuery prevSibs = resultHighlight.prevAll("li." + css.activeResult());
-            // but performance is bad... See http://code.google.com/p/gwtquery/issues/detail?id=146
+            return;
+        }
 
-            GQuery prevSibling = resultHighlight.prev();
+        ensureResultRows();
 
-            while (!prevSibling.isEmpty() && !prevSibling.is("li." + css.activeResult())) {
-                prevSibling = prevSibling.prev();
-            }
+        int row = resultHighlightItem == null ? -1 : getResultRow(resultHighlightItem);
+        int target = Math.max(0, Math.min(resultRows.size() - 1, row + direction * getResultsPageSize()));
+
+        // first option at or beyond the target row, or the last option in this direction
+        OptionItem item = nextResult(target - direction, direction);
+        if (item == null) {
+            item = nextResult(target, -direction);
+        }
+
+        resultDoHighlight(item);
+    }
+
+    private void keyupArrow() {
+        if (!resultsShowing) {
+            resultsShow();
+        } else if (resultHighlightItem == null) {
+            highlightLastResult();
+        } else {
+            OptionItem previous = nextResult(getResultRow(resultHighlightItem), -1);
 
-            if (prevSibling.length() > 0) {
-                resultDoHighlight(prevSibling.first());
+            if (previous != null) {
+                resultDoHighlight(previous);
             } else {
                 if (choices > 0) {
                     resultsHide();
@@ -1017,6 +1723,7 @@ public abstract class ChosenImpl {
 
             case ENTER:
                 if (resultsShowing) {
+                    flushSearch();
                     resultSelect(e);
                 }
                 return true;
@@ -1030,21 +1737,210 @@ public abstract class ChosenImpl {
             case CTRL:
             case UP_ARROW:
             case DOWN_ARROW:
+            case PAGE_UP:
+            case PAGE_DOWN:
+            case END:
+            case HOME:
             case LEFT_WINDOW_KEY:
                 // do nothing
                 break;
             default:
-                resultsSearch();
+                requestSearch();
                 break;
         }
 
         return true;
     }
 
+    /**
+     * Return the first option found in the result rows from {@code row} (excluded) in the direction of {@code step}.
+     */
+    private OptionItem nextResult(int row, int step) {
+        ensureResultRows();
+
+        for (int i = row + step; i >= 0 && i < resultRows.size(); i += step) {
+            SelectItem item = resultRows.get(i);
+            if (!item.isGroup()) {
+                return (OptionItem) item;
+            }
+        }
+
+        return null;
+    }
+
     private void noResultClear() {
         searchResults.find("." + css.noResults()).remove();
     }
 
+    /**
+     * Return the items of the select element, copied from the shared {@link OptionSource} if it has the same options.
+     */
+    private List<SelectItem> parseItems() {
+        OptionSource source = options.getOptionSource();
+        List<SelectItem> items = source == null ? null : source.createItems(selectElement);
+
+        itemsSource = items == null ? null : source;
+        return items == null ? new SelectParser().parse(selectElement) : items;
+    }
+
+    /**
+     * Update the results and the choices after an update of the select element. Items are matched with the previous
+     * ones by value (or label for the groups): the elements of the unchanged items are kept and only the elements of
+     * the added, removed or modified items are touched.
+     */
+    private void patchResultItems(List<SelectItem> items) {
+        invalidateResults();
+
+        if (selectedItem != null) {
+            selectedItem.toggleClass(css.chznDefault(), selectedValues.isEmpty());
+        }
+
+        Map<String, List<SelectItem>> previousByKey = new HashMap<String, List<SelectItem>>();
+        for (SelectItem previous : selectItems) {
+            String key = resultKey(previous);
+            List<SelectItem> sameKey = previousByKey.get(key);
+            if (sameKey == null) {
+                sameKey = new ArrayList<SelectItem>();
+                previousByKey.put(key, sameKey);
+            }
+            sameKey.add(previous);
+        }
+
+        // previous version of each item and new version of each previous item, indexed by array index
+        SelectItem[] previousItems = new SelectItem[items.size()];
+        SelectItem[] updatedItems = new SelectItem[selectItems.size()];
+
+        for (SelectItem item : items) {
+            List<SelectItem> sameKey = previousByKey.get(resultKey(item));
+            if (sameKey != null) {
+                for (int i = 0; i < sameKey.size(); i++) {
+                    SelectItem previous = sameKey.get(i);
+                    if (isSameResult(previous, item)) {
+                        sameKey.remove(i);
+                        previousItems[item.getArrayIndex()] = previous;
+                        updatedItems[previous.getArrayIndex()] = item;
+                        break;
+                    }
+                }
+            }
+
+            SelectItem previous = previousItems[item.getArrayIndex()];
+            assignResultKey(item, previous != null ? previous.resultKey : nextResultKey++);
+
+            if (!item.isDisabled() && !item.isEmpty()) {
+                item.domId = resultDomId(item);
+            }
+
+            if (!item.isGroup()) {
+                OptionItem optionItem = (OptionItem) item;
+                optionItem.active = !optionItem.isDisabled() && !optionItem.isEmpty()
+                        && (!isMultiple() || !optionItem.isSelected());
+            }
+        }
+
+        patchChoices(items, previousItems, updatedItems);
+
+        setupSearchField(false);
+
+        if (virtualScroll) {
+            selectItems = items;
+            resultRowsDirty = true;
+            renderVirtualResults(true);
+        } else {
+            patchResultElements(items, previousItems, updatedItems);
+            selectItems = items;
+        }
+
+        if (resultsShowing) {
+            positionDropdownResult();
+        }
+    }
+
+    private void patchChoices(List<SelectItem> items, SelectItem[] previousItems, SelectItem[] updatedItems) {
+        for (SelectItem previous : selectItems) {
+            if (isSelectedOption(previous)) {
+                SelectItem item = updatedItems[previous.getArrayIndex()];
+                if (item == null || !isSelectedOption(item)) {
+                    removeChoice((OptionItem) previous);
+                }
+            }
+        }
+
+        selectedValues = new ArrayList<String>();
+
+        for (SelectItem item : items) {
+            if (isSelectedOption(item)) {
+                SelectItem previous = previousItems[item.getArrayIndex()];
+                if (!isMultiple() || previous == null || !isSelectedOption(previous)) {
+                    addChoice((OptionItem) item);
+                }
+
+                selectedValues.add(((OptionItem) item).getValue());
+            }
+        }
+    }
+
+    private void patchResultElements(List<SelectItem> items, SelectItem[] previousItems, SelectItem[] updatedItems) {
+        noResultClear();
+
+        Element list = searchResults.get(0);
+        Element[] previousElements = resultElements;
+
+        // remove the elements of the removed items first so the kept elements are already in the right order
+        for (SelectItem previous : selectItems) {
+            if (updatedItems[previous.getArrayIndex()] == null) {
+                Element element = getResultElement(previous);
+                if (element != null) {
+                    element.removeFromParent();
+                }
+            }
+        }
+
+        resultElements = new Element[items.size()];
+        Node next = list.getFirstChild();
+
+        for (SelectItem item : items) {
+            if (item.getDomId() == null) {
+                continue;
+            }
+
+            SelectItem previous = previousItems[item.getArrayIndex()];
+            Element element = previous != null && previous.getArrayIndex() < previousElements.length
+                    ? previousElements[previous.getArrayIndex()] : null;
+
+            if (element == null) {
+                SafeHtml html = item.isGroup() ? resultAddGroup((GroupItem) item) : resultAddOption((OptionItem) item);
+                element = $(html.asString()).get(0);
+                bindResultElement(item, element);
+            } else {
+                // the kept element already has the id of the item and is bound to its result key
+                resultElements[item.getArrayIndex()] = element;
+
+                if (item.isGroup()) {
+                    if (!element.getStyle().getDisplay().isEmpty()) {
+                        element.getStyle().clearDisplay();
+                    }
+                } else {
+                    String classes = buildResultClasses((OptionItem) item);
+                    if (!classes.equals(element.getClassName())) {
+                        element.setClassName(classes);
+                    }
+
+                    // the kept element still displays the highlight of the previous item
+                    OptionItem option = (OptionItem) item;
+                    option.renderedMatchStart = ((OptionItem) previous).renderedMatchStart;
+                    option.renderedMatchLength = ((OptionItem) previous).renderedMatchLength;
+                }
+            }
+
+            if (element == next) {
+                next = next.getNextSibling();
+            } else {
+                list.insertBefore(element, next);
+            }
+        }
+    }
+
     private int positionAbove() {
         return -dropdown.outerHeight();
     }
@@ -1071,71 +1967,244 @@ public abstract class ChosenImpl {
     }
 
     private void rebuildResultItems(boolean init) {
+        invalidateResults();
+
         if (selectedItem != null) {
             selectedItem.toggleClass(css.chznDefault(), selectedValues.isEmpty());
         }
 
         SafeHtmlBuilder content = new SafeHtmlBuilder();
         SafeHtmlBuilder optionsHtml = new SafeHtmlBuilder();
+        List<SelectItem> renderedItems = new ArrayList<SelectItem>();
 
+        resultElements = new Element[selectItems.size()];
+        resultKeyPositions = new int[selectItems.size()];
+        nextResultKey = 0;
         selectedValues = new ArrayList<String>();
 
         for (SelectItem item : selectItems) {
-            if (item.isGroup()) {
-                SafeHtml result = resultAddGroup((GroupItem) item);
-                if (result != null) {
-                    content.append(result);
-                }
-            } else {
-                OptionItem optionItem = (OptionItem) item;
-
-                if (optionItem.isEmpty()) {
-                    optionsHtml.append(createEmptyOption());
-                    continue;
-                }
+            renderResultItem(item, content, optionsHtml, renderedItems);
+        }
 
-                if (customFilter) {
-                    optionsHtml.append(createOption(optionItem));
-                }
+        setupSearchField(init);
 
-                SafeHtml optionHtml = resultAddOption(optionItem);
-                if (optionHtml != null) {
-                    content.append(optionHtml);
-                }
+        if (customFilter) {
+            // keep the html select element synchronized with the new result.
+            $selectElement.html(optionsHtml.toSafeHtml().asString());
+        }
 
-                if (optionItem.isSelected()) {
-                    addChoice(optionItem);
+        if (virtualScroll) {
+            resultRowsDirty = true;
+            searchResults.scrollTop(0);
+            renderVirtualResults(true);
+        } else {
+            searchResults.html(content.toSafeHtml().asString());
 
-                    selectedValues.add(optionItem.getValue());
-                }
+            Element element = searchResults.get(0).getFirstChildElement();
+            for (SelectItem item : renderedItems) {
+                bindResultElement(item, element);
+                element = element.getNextSiblingElement();
             }
         }
 
-        isDisabled = selectElement.isDisabled();
-        if (isDisabled) {
-            setupDisabledSearchField();
+        if (resultsShowing) {
+            positionDropdownResult();
+        }
+    }
+
+    /**
+     * Remove the results from the page once the dropdown is hidden, see
+     * {@link ChosenOptions#setResultsOnDemand(boolean)}. The component goes back to the state of the lazy mode before
+     * the first opening: only the selection is rendered.
+     */
+    private void releaseResults() {
+        invalidateResults();
+
+        resultsBuilt = false;
+        lazyResultsRequested = false;
+        selectItems = new ArrayList<SelectItem>();
+        itemsSource = null;
+        resultElements = new Element[0];
+        resultRows.clear();
+        resultRowIndexes = new int[0];
+        virtualFirstRow = 0;
+        virtualLastRow = 0;
+
+        searchResults.empty();
+    }
+
+    private void renderHighlight(OptionItem option, Element element) {
+        boolean unchanged = option.matchLength == option.renderedMatchLength
+                && (option.matchLength == 0 || option.matchStart == option.renderedMatchStart);
+        if (unchanged) {
+            return;
+        }
+
+        element.setInnerHTML(buildResultContent(option));
+
+        option.renderedMatchStart = option.matchStart;
+        option.renderedMatchLength = option.matchLength;
+    }
+
+    private void renderResultItem(SelectItem item, SafeHtmlBuilder content, SafeHtmlBuilder optionsHtml,
+            List<SelectItem> renderedItems) {
+        assignResultKey(item, nextResultKey++);
+
+        // groups are displayed once the results are filtered
+        item.active = false;
+
+        if (item.isGroup()) {
+            SafeHtml result = resultAddGroup((GroupItem) item);
+            if (result != null) {
+                content.append(result);
+                renderedItems.add(item);
+            }
         } else {
-            setupEnabledSearchField();
+            OptionItem optionItem = (OptionItem) item;
+            optionItem.matchLength = 0;
+            optionItem.renderedMatchLength = 0;
+
+            if (optionItem.isEmpty()) {
+                optionsHtml.append(createEmptyOption());
+                return;
+            }
+
+            if (customFilter) {
+                optionsHtml.append(createOption(optionItem));
+            }
+
+            optionItem.active = !optionItem.isDisabled() && (!isMultiple() || !optionItem.isSelected());
+
+            SafeHtml optionHtml = resultAddOption(optionItem);
+            if (optionHtml != null) {
+                content.append(optionHtml);
+                renderedItems.add(optionItem);
+            }
+
+            if (optionItem.isSelected()) {
+                addChoice(optionItem);
+
+                selectedValues.add(optionItem.getValue());
+            }
         }
+    }
 
-        if (init) {
-            showSearchFieldDefault(defaultText);
-            searchFieldScale(fWidth);
+    /**
+     * Render the rows visible in the results list plus a buffer above and below them. Spacers replace the rows that
+     * are not rendered so the height of the list stays the same.
+     */
+    private void renderVirtualResults(boolean force) {
+        if (resultRowsDirty) {
+            buildResultRows();
+            resultElements = new Element[selectItems.size()];
+            force = true;
         }
-        if (customFilter) {
-            // keep the html select element synchronized with the new result.
-            $selectElement.html(optionsHtml.toSafeHtml().asString());
+
+        int rowHeight = getVirtualRowHeight();
+        int rowsCount = resultRows.size();
+        int scrollTop = searchResults.scrollTop();
+        int viewportHeight = searchResults.get(0).getClientHeight();
+        int visibleRows = viewportHeight > 0 ? viewportHeight / rowHeight + 1 : VIRTUAL_SCROLL_DEFAULT_VISIBLE_ROWS;
+
+        int firstRow = Math.max(0, scrollTop / rowHeight - VIRTUAL_SCROLL_BUFFER);
+        int lastRow = Math.min(rowsCount, scrollTop / rowHeight + visibleRows + VIRTUAL_SCROLL_BUFFER);
+
+        if (!force && firstRow == virtualFirstRow && lastRow == virtualLastRow) {
+            return;
+        }
+
+        // forget the rows rendered previously, resultElements is already empty if the rows have been rebuilt
+        for (int i = virtualFirstRow; i < virtualLastRow && i < rowsCount; i++) {
+            resultElements[resultRows.get(i).getArrayIndex()] = null;
         }
+
+        SafeHtmlBuilder content = new SafeHtmlBuilder();
+
+        if (firstRow > 0) {
+            content.append(buildVirtualSpacer(firstRow * rowHeight));
+        }
+        for (int i = firstRow; i < lastRow; i++) {
+            content.append(buildVirtualRow(resultRows.get(i)));
+        }
+        if (lastRow < rowsCount) {
+            content.append(buildVirtualSpacer((rowsCount - lastRow) * rowHeight));
+        }
+
         searchResults.html(content.toSafeHtml().asString());
+        searchResults.scrollTop(scrollTop);
 
-        if (resultsShowing) {
-            positionDropdownResult();
+        Element element = searchResults.get(0).getFirstChildElement();
+        if (firstRow > 0) {
+            // skip the spacer
+            element = element.getNextSiblingElement();
+        }
+        for (int i = firstRow; i < lastRow; i++) {
+            bindResultElement(resultRows.get(i), element);
+            element = element.getNextSiblingElement();
+        }
+
+        virtualFirstRow = firstRow;
+        virtualLastRow = lastRow;
+
+        if (virtualRowHeight == 0 && lastRow > firstRow) {
+            int measuredHeight = searchResults.children().eq(firstRow > 0 ? 1 : 0).outerHeight();
+
+            if (measuredHeight > 0) {
+                virtualRowHeight = measuredHeight;
+
+                if (measuredHeight != rowHeight) {
+                    // the spacers have been computed with a wrong height
+                    renderVirtualResults(true);
+                    return;
+                }
+            }
+        }
+
+        bindVirtualHighlight();
+    }
+
+    /**
+     * Update the highlighted part of the content of the results in the visible part of the results list, plus a few
+     * results above and below it. The results whose highlight didn't change are not rendered again.
+     */
+    private void renderVisibleHighlights() {
+        if (virtualScroll || !resultsShowing) {
+            return;
+        }
+
+        ensureResultRows();
+
+        Element list = searchResults.get(0);
+        int viewportHeight = list.getClientHeight();
+        if (resultRows.isEmpty() || viewportHeight <= 0) {
+            return;
+        }
+
+        // all the positions are read before any result is modified, to avoid a layout for each result
+        int scrollTop = list.getScrollTop();
+        int firstRow = Math.max(0, findResultRowBelow(scrollTop) - VIRTUAL_SCROLL_BUFFER);
+        int lastRow = Math.min(resultRows.size(),
+                findResultRowBelow(scrollTop + viewportHeight) + 1 + VIRTUAL_SCROLL_BUFFER);
+
+        for (int i = firstRow; i < lastRow; i++) {
+            SelectItem row = resultRows.get(i);
+            Element element = getResultElement(row);
+
+            if (!row.isGroup() && element != null) {
+                renderHighlight((OptionItem) row, element);
+            }
         }
     }
 
     private SafeHtml resultAddGroup(GroupItem group) {
         if (!group.isDisabled()) {
-            group.domId = containerId + "_g_" + group.getArrayIndex();
+            group.domId = resultDomId(group);
+
+            if (virtualScroll) {
+                // rendered on demand
+                return null;
+            }
+
             return ChosenTemplate.templates.group(group.domId, css.groupResult(), group.getLabel());
         } else {
             return null;
@@ -1144,47 +2213,77 @@ public abstract class ChosenImpl {
 
     private SafeHtml resultAddOption(OptionItem option) {
         if (!option.isDisabled()) {
-            option.domId = containerId + "_o_" + option.getArrayIndex();
+            option.domId = resultDomId(option);
 
-            StringBuilder classes = buildOptionStyleClass(option);
-            if (classes.indexOf(getCss().activeResult()) == -1) {
-                if (!isMultiple() || !option.isSelected()) {
-                    classes.append(" ").append(getCss().activeResult());
-                }
+            if (virtualScroll) {
+                // rendered on demand
+                return null;
             }
 
+            String classes = buildResultClasses(option);
+
             SafeStyles safeStyles = SafeStylesUtils.fromTrustedString(option.getStyle());
             if (option.getHtml() != null && !option.getHtml().trim().isEmpty()) {
                 SafeHtml html = fromTrustedString(option.getHtml());
-                return ChosenTemplate.templates.option(option.getDomId(), classes.toString().trim(), safeStyles, html);
+                return ChosenTemplate.templates.option(option.getDomId(), classes, safeStyles, html);
             } else {
-                return ChosenTemplate.templates.option(option.getDomId(), classes.toString().trim(), safeStyles,
-                        option.getText());
+                return ChosenTemplate.templates.option(option.getDomId(), classes, safeStyles, option.getText());
             }
         }
         return null;
     }
 
-    private void resultDeselect(int index, String value) {
-        if (index < selectItems.size()) {
-            OptionItem item = (OptionItem) selectItems.get(index);
+    private String resultDomId(SelectItem item) {
+        return containerId + (item.isGroup() ? "_g_" : "_o_") + item.resultKey;
+    }
 
-            if (item.getValue().equals(value)) {
-                item.setSelected(false);
+    private String resultKey(SelectItem item) {
+        if (item.isGroup()) {
+            return "g" + ((GroupItem) item).getLabel();
+        }
+        // the text distinguishes the options sharing the same value, like the empty ones
+        OptionItem option = (OptionItem) item;
+        return "o" + option.getValue() + "\u0000" + option.getText();
+    }
 
-                // select option in original element
-                OptionElement option = selectElement.getOptions().getItem(item.getOptionsIndex());
-                if (option != null) {
-                    option.setSelected(false);
-                }
+    private void resultDeselect(int resultKey, String value) {
+        if (!resultsBuilt) {
+            // the results will be built on the next opening of the dropdown, only the items are needed here
+            selectItems = parseItems();
+            for (SelectItem item : selectItems) {
+                item.resultKey = item.getArrayIndex();
+            }
+        }
 
-                $("#" + containerId + "_o_" + index).removeClass(css.resultSelected()).addClass(
-                        css.activeResult()).show();
+        OptionItem item = findChoiceItem(resultKey, value);
+        int index = item == null ? -1 : item.getArrayIndex();
+
+        if (item != null) {
+            item.setSelected(false);
+            item.active = true;
+
+            // select option in original element
+            OptionElement option = selectElement.getOptions().getItem(item.getOptionsIndex());
+            if (option != null) {
+                option.setSelected(false);
+            }
+
+            if (virtualScroll) {
+                resultRowsDirty = true;
+            } else {
+                Element result = getResultElement(item);
+                if (result != null) {
+                    $(result).removeClass(css.resultSelected()).addClass(css.activeResult()).show();
+                }
             }
         }
 
+        invalidateResults();
+
         resultClearHighlight();
-        winnowResults(false);
+        if (resultsBuilt) {
+            winnowResults(false);
+        }
 
         deselect(value);
 
@@ -1201,6 +2300,7 @@ public abstract class ChosenImpl {
         resultClearHighlight();
 
         resultHighlight = el;
+        resultHighlightItem = getOptionItem(el);
         el.addClass(css.highlighted());
 
         int searchResultHeight = searchResults.innerHeight();
@@ -1218,6 +2318,47 @@ public abstract class ChosenImpl {
         }
     }
 
+    protected void resultDoHighlight(OptionItem item) {
+        if (item == null) {
+            return;
+        }
+
+        if (!virtualScroll) {
+            Element result = getResultElement(item);
+            if (result != null) {
+                resultDoHighlight($(result));
+            }
+            return;
+        }
+
+        int row = getResultRow(item);
+        if (row == -1) {
+            return;
+        }
+
+        resultClearHighlight();
+
+        resultHighlightItem = item;
+
+        int rowHeight = getVirtualRowHeight();
+        int searchResultHeight = searchResults.innerHeight();
+        int visibleTop = searchResults.scrollTop();
+        int visibleBottom = searchResultHeight + visibleTop;
+
+        int highTop = row * rowHeight;
+        int highBottom = highTop + rowHeight;
+
+        if (highBottom >= visibleBottom) {
+            int toScroll = highBottom - searchResultHeight;
+            searchResults.scrollTop(toScroll > 0 ? toScroll : 0);
+        } else if (highTop < visibleTop) {
+            searchResults.scrollTop(highTop);
+        }
+
+        renderVirtualResults(false);
+        bindVirtualHighlight();
+    }
+
     private void resultsReset() {
         OptionElement firstoption = selectElement.getOptions().getItem(0);
         selectedValues = new ArrayList<String>();
@@ -1311,7 +2452,20 @@ public abstract class ChosenImpl {
 
         customFilter = resultsFilter != null;
 
-        if (!customFilter) {
+        // the ranked results are rendered on demand, like the virtual scroll
+        boolean rankedResults = !customFilter && options.getRankedResultsLimit() > 0;
+
+        virtualScroll = (options.isVirtualScroll() || rankedResults) && supportsVirtualScroll();
+
+        if (customFilter) {
+            return;
+        }
+
+        if (rankedResults && virtualScroll) {
+            resultsFilter = new RankingResultsFilter();
+        } else if (options.getWorkerFilterThreshold() >= 0) {
+            resultsFilter = new WorkerResultsFilter();
+        } else {
             resultsFilter = new ClientResultsFilter();
         }
     }
@@ -1322,6 +2476,20 @@ public abstract class ChosenImpl {
                 && "".equals(optionsList.getItem(0).getText());
     }
 
+    private void setupSearchField(boolean init) {
+        isDisabled = selectElement.isDisabled();
+        if (isDisabled) {
+            setupDisabledSearchField();
+        } else {
+            setupEnabledSearchField();
+        }
+
+        if (init) {
+            showSearchFieldDefault(defaultText);
+            searchFieldScale(fWidth);
+        }
+    }
+
     private void setTabIndex() {
         String tabIndexProperty = $selectElement.attr(TABINDEX_PROPERTY);
         if (tabIndexProperty != null && tabIndexProperty.length() > 0) {
@@ -1420,10 +2588,39 @@ public abstract class ChosenImpl {
         searchText = SafeHtmlUtils.htmlEscape(searchText);
 
         resultsFilter.filter(searchText, this, isShowing);
+
+        if (virtualScroll) {
+            renderVirtualResults(false);
+        }
     }
 
     private void winnowResultsClear() {
+        invalidateResults();
         searchField.val("");
+
+        if (!resultsBuilt) {
+            return;
+        }
+
+        for (SelectItem item : selectItems) {
+            if (item.isGroup()) {
+                item.active = false;
+            } else if (!item.isDisabled() && !item.isEmpty()) {
+                OptionItem option = (OptionItem) item;
+                option.matchLength = 0;
+
+                if (shouldActivateResult(option)) {
+                    option.active = true;
+                }
+            }
+        }
+
+        if (virtualScroll) {
+            resultRowsDirty = true;
+            renderVirtualResults(true);
+            return;
+        }
+
         GQuery lis = searchResults.find("li");
 
         for (Element li : lis.elements()) {
@@ -1435,5 +2632,7 @@ public abstract class ChosenImpl {
             }
             $li.removeClass(css.foundResult());
         }
+
+        renderVisibleHighlights();
     }
 }
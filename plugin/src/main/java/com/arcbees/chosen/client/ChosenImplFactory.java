@@ -21,9 +21,15 @@ import com.google.gwt.dom.client.SelectElement;
 public class ChosenImplFactory {
     // TODO: in GWT 3.0, this factory could use a system property in order to determine which version (mobile/desktop)
     // is compiled
+
+    // the media query is only evaluated once per factory, for the maximum width it was evaluated with
+    private boolean mobileEvaluated;
+    private int mobileViewportMaxWidth;
+    private boolean mobile;
+
     ChosenImpl createChosenImpl(SelectElement selectElement, ChosenOptions options) {
         boolean isMultiple = selectElement.isMultiple();
-        boolean isMobile = isMobileDevice(options.getMobileViewportMaxWidth());
+        boolean isMobile = isMobile(options.getMobileViewportMaxWidth());
 
         if (isMobile) {
             return isMultiple ? new MobileMultipleChosenImpl() : new MobileSingleChosenImpl();
@@ -32,6 +38,16 @@ public class ChosenImplFactory {
         return isMultiple ? new DesktopMultipleChosenImpl() : new DesktopSingleChosenImpl();
     }
 
+    private boolean isMobile(int maxWidth) {
+        if (!mobileEvaluated || maxWidth != mobileViewportMaxWidth) {
+            mobile = isMobileDevice(maxWidth);
+            mobileViewportMaxWidth = maxWidth;
+            mobileEvaluated = true;
+        }
+
+        return mobile;
+    }
+
     private native boolean isMobileDevice(int maxWidth) /*-{
         var media = $wnd.matchMedia && $wnd.matchMedia("(max-width: " + maxWidth + "px)");
         return media && media.matches;
@@ -40,6 +40,19 @@ public class ChosenOptions {
     private String manySelectedTextMultipleMobile;
     private boolean mobileAnimation;
     private int mobileAnimationSpeed;
+    private boolean virtualScroll;
+    private boolean lazyResults;
+    private int incrementalFilterThreshold;
+    private String loadingText;
+    private int resultsCacheSize;
+    private int resultsCacheTimeToLive;
+    private int searchDelay;
+    private int rankedResultsLimit;
+    private boolean fuzzySearch;
+    private int workerFilterThreshold;
+    private OptionSource optionSource;
+    private boolean resultsOnDemand;
+    private boolean upgradeOnDemand;
 
     public ChosenOptions() {
         setDefault();
@@ -289,6 +302,223 @@ public class ChosenOptions {
         return this.mobileAnimationSpeed;
     }
 
+    public boolean isLazyResults() {
+        return lazyResults;
+    }
+
+    /**
+     * Defer the parsing of the select element and the construction of the results until the dropdown is opened for
+     * the first time or until the browser is idle, when the browser supports idle callbacks. Only the current
+     * selection is rendered when the component is initialized.
+     * <p/>
+     * Useful for pages containing many Chosen components that are rarely opened.
+     */
+    public ChosenOptions setLazyResults(boolean lazyResults) {
+        this.lazyResults = lazyResults;
+        return this;
+    }
+
+    public boolean isVirtualScroll() {
+        return virtualScroll;
+    }
+
+    /**
+     * Render only the results visible in the dropdown (plus a small buffer) instead of one element per option. Spacer
+     * elements keep the height of the list so the scrollbar behaves as if every result was rendered.
+     * <p/>
+     * Useful for selects containing several thousands of options. Every result is expected to have the same height.
+     * This option is ignored on mobile devices.
+     */
+    public ChosenOptions setVirtualScroll(boolean virtualScroll) {
+        this.virtualScroll = virtualScroll;
+        return this;
+    }
+
+    public int getIncrementalFilterThreshold() {
+        return incrementalFilterThreshold;
+    }
+
+    /**
+     * Set the number of options above which the default filter processes the options in several steps, giving the
+     * control back to the browser between each step. A filtering still in progress is abandoned as soon as a new
+     * search is started. Use -1 (the default) to always filter the options in one step.
+     *
+     * @param incrementalFilterThreshold number of options above which the filtering is split in several steps
+     */
+    public ChosenOptions setIncrementalFilterThreshold(int incrementalFilterThreshold) {
+        this.incrementalFilterThreshold = incrementalFilterThreshold;
+        return this;
+    }
+
+    public String getLoadingText() {
+        return loadingText;
+    }
+
+    /**
+     * Set the text displayed in the dropdown while an {@link AsyncResultsFilter} waits for the results of a search.
+     */
+    public ChosenOptions setLoadingText(String loadingText) {
+        this.loadingText = loadingText;
+        return this;
+    }
+
+    public int getResultsCacheSize() {
+        return resultsCacheSize;
+    }
+
+    /**
+     * Set the maximum number of searches whose results are cached by an {@link AsyncResultsFilter}. The least recently
+     * used results are evicted first. Use 0 (the default) to disable the cache.
+     *
+     * @param resultsCacheSize maximum number of cached searches
+     */
+    public ChosenOptions setResultsCacheSize(int resultsCacheSize) {
+        this.resultsCacheSize = resultsCacheSize;
+        return this;
+    }
+
+    public int getResultsCacheTimeToLive() {
+        return resultsCacheTimeToLive;
+    }
+
+    /**
+     * Set the time in milliseconds after which the results cached by an {@link AsyncResultsFilter} expire. Use 0 to
+     * keep them until they are evicted. Default is 5 minutes.
+     *
+     * @param resultsCacheTimeToLive time to live of the cached results in milliseconds
+     */
+    public ChosenOptions setResultsCacheTimeToLive(int resultsCacheTimeToLive) {
+        this.resultsCacheTimeToLive = resultsCacheTimeToLive;
+        return this;
+    }
+
+    public int getSearchDelay() {
+        return searchDelay;
+    }
+
+    /**
+     * Coalesce the characters typed in the search field so the results are filtered at most once per
+     * {@code searchDelay} milliseconds, or once per animation frame if {@code searchDelay} is 0. A pending search is
+     * always run before a result is selected or highlighted with the keyboard. Use -1 (the default) to filter the
+     * results on each key stroke.
+     *
+     * @param searchDelay minimum time in milliseconds between two searches
+     */
+    public ChosenOptions setSearchDelay(int searchDelay) {
+        this.searchDelay = searchDelay;
+        return this;
+    }
+
+    public int getRankedResultsLimit() {
+        return rankedResultsLimit;
+    }
+
+    /**
+     * Display only the {@code rankedResultsLimit} options that best match the search, sorted by relevance: exact
+     * matches first, then the options starting with the search, then the options containing a word starting with the
+     * search and finally, with {@link #setSearchContains(boolean)}, the options containing the search anywhere. The
+     * groups are not displayed while searching.
+     * <p/>
+     * The results are then rendered like with {@link #setVirtualScroll(boolean)}. This option is ignored on mobile
+     * devices and with a custom {@link ResultsFilter}. Use -1 (the default) to display every matching option in the
+     * order of the select element.
+     *
+     * @param rankedResultsLimit maximum number of options displayed while searching
+     */
+    public ChosenOptions setRankedResultsLimit(int rankedResultsLimit) {
+        this.rankedResultsLimit = rankedResultsLimit;
+        return this;
+    }
+
+    public boolean isFuzzySearch() {
+        return fuzzySearch;
+    }
+
+    /**
+     * Tolerate typos in the search: an option matches if it contains the search with at most one inserted, deleted
+     * or substituted character for searches of 3 to 5 characters, and at most two for longer searches. The search is
+     * looked for anywhere in the options, like with {@link #setSearchContains(boolean)}.
+     * <p/>
+     * This option is ignored by custom {@link ResultsFilter}s and with {@link #setRankedResultsLimit(int)}.
+     */
+    public ChosenOptions setFuzzySearch(boolean fuzzySearch) {
+        this.fuzzySearch = fuzzySearch;
+        return this;
+    }
+
+    public int getWorkerFilterThreshold() {
+        return workerFilterThreshold;
+    }
+
+    /**
+     * Set the number of options above which the options are matched in a Web Worker, keeping the page responsive
+     * while searching in lists of a hundred thousand options or more. The results of a search are displayed once the
+     * worker has answered, the answers to the superseded searches are dropped. The browsers that cannot start the
+     * worker filter the options as usual. Use -1 (the default) to never use a worker.
+     * <p/>
+     * This option is ignored by custom {@link ResultsFilter}s, with {@link #setRankedResultsLimit(int)} and with
+     * {@link #setFuzzySearch(boolean)}.
+     *
+     * @param workerFilterThreshold number of options above which the options are matched in a Web Worker
+     */
+    public ChosenOptions setWorkerFilterThreshold(int workerFilterThreshold) {
+        this.workerFilterThreshold = workerFilterThreshold;
+        return this;
+    }
+
+    public OptionSource getOptionSource() {
+        return optionSource;
+    }
+
+    /**
+     * Share the options of {@code optionSource} between the components using these options, typically the many
+     * components of a grid displaying the same list. The search text of the options and the search indexes are built
+     * once for all of them. Each component still reads its options, to compare them with the source and to read
+     * which ones are selected, and copies the items of the source.
+     * <p/>
+     * A component whose options differ from the source, by their number, groups, value, text, html, classes, style or
+     * disabled state, parses its own options.
+     */
+    public ChosenOptions setOptionSource(OptionSource optionSource) {
+        this.optionSource = optionSource;
+        return this;
+    }
+
+    public boolean isResultsOnDemand() {
+        return resultsOnDemand;
+    }
+
+    /**
+     * Only keep the results in the page while the dropdown is shown. The results are built each time the dropdown is
+     * opened and removed once it is closed, so a page containing hundreds of components only holds the results of the
+     * opened one. Like with {@link #setLazyResults(boolean)}, the closed components only render their selection.
+     * <p/>
+     * Combine it with {@link #setOptionSource(OptionSource)} to avoid parsing the options at each opening. This option
+     * is ignored with a custom {@link ResultsFilter}.
+     */
+    public ChosenOptions setResultsOnDemand(boolean resultsOnDemand) {
+        this.resultsOnDemand = resultsOnDemand;
+        return this;
+    }
+
+    public boolean isUpgradeOnDemand() {
+        return upgradeOnDemand;
+    }
+
+    /**
+     * Keep the native select elements until they are needed: a select element is replaced by the Chosen component
+     * when it is focused, pressed or hovered for the first time, or when it comes near the viewport. Without
+     * IntersectionObserver support, the select elements are replaced when the browser is idle.
+     * <p/>
+     * Useful for long forms, where the components below the fold are only created when the user scrolls to them.
+     * Until then, the methods of {@link Chosen} and {@link com.arcbees.chosen.client.gwt.ChosenListBox} depending on
+     * the component have no effect.
+     */
+    public ChosenOptions setUpgradeOnDemand(boolean upgradeOnDemand) {
+        this.upgradeOnDemand = upgradeOnDemand;
+        return this;
+    }
+
     private void setDefault() {
         allowSingleDeselect = false;
         disableSearchThreshold = 0;
@@ -302,5 +532,17 @@ public class ChosenOptions {
         manySelectedTextMultipleMobile = "{} items selected";
         mobileAnimation = true;
         mobileAnimationSpeed = 150;
+        virtualScroll = false;
+        lazyResults = false;
+        incrementalFilterThreshold = -1;
+        loadingText = "Loading...";
+        resultsCacheSize = 0;
+        resultsCacheTimeToLive = 300000;
+        searchDelay = -1;
+        rankedResultsLimit = -1;
+        fuzzySearch = false;
+        workerFilterThreshold = -1;
+        resultsOnDemand = false;
+        upgradeOnDemand = false;
     }
 }
@@ -89,6 +89,12 @@ public interface ChosenTemplate extends SafeHtmlTemplates {
     @Template("<li id=\"{0}\" class=\"{1}\">{2}</li>")
     SafeHtml group(String id, String groupResultClass, String content);
 
+    @Template("<li id=\"{0}\" class=\"{1}\" style=\"{2}\">{3}</li>")
+    SafeHtml group(String id, String groupResultClass, SafeStyles style, String content);
+
+    @Template("<li class=\"{0}\">{1}</li>")
+    SafeHtml loading(String noResultsClass, String content);
+
     @Template("<li class=\"{0}\">{1}\"<span></span>\"</li>")
     SafeHtml noResults(String noResultsClass, String content);
 
@@ -97,4 +103,7 @@ public interface ChosenTemplate extends SafeHtmlTemplates {
 
     @Template("<li id=\"{0}\" class=\"{1}\" style=\"{2}\">{3}</li>")
     SafeHtml option(String id, String groupResultClass, SafeStyles safeStyles, SafeHtml htmlContent);
+
+    @Template("<li style=\"{0}\"></li>")
+    SafeHtml spacer(SafeStyles style);
 }
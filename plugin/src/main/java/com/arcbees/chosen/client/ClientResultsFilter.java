@@ -16,100 +16,411 @@
 
 package com.arcbees.chosen.client;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.arcbees.chosen.client.SelectParser.OptionItem;
 import com.arcbees.chosen.client.SelectParser.SelectItem;
-import com.google.gwt.query.client.GQuery;
-import com.google.gwt.regexp.shared.RegExp;
-
-import static com.google.gwt.query.client.GQuery.$;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 
+/**
+ * Default filter used when no custom {@link ResultsFilter} is provided.
+ * <p/>
+ * The filter remembers the options matched by the previous queries. When the new query extends the previous one,
+ * only the options that matched it are tested again. When characters are removed, the results of the shorter query
+ * are taken back from the stack of previous passes.
+ * <p/>
+ * Above {@link ChosenOptions#getIncrementalFilterThreshold()} candidates, a pass is split in steps of a few
+ * milliseconds. A pass still in progress is abandoned when a new search starts, it never becomes a previous pass.
+ * <p/>
+ * With {@link ChosenOptions#isSearchContains()}, a {@link TrigramIndex} of the options is built on the first search.
+ * The queries of three characters or more only visit the options containing every trigram of the query, which are
+ * then verified. Otherwise, a {@link PrefixIndex} of the words of the options finds the options matching a query by
+ * binary search. In both cases, the cost of a search depends on the number of candidates, not on the number of
+ * options: the filter remembers the options left active by its last search and only deactivates those that are no
+ * longer candidates. Until it knows them, after the component modified its results, every option is checked once.
+ * <p/>
+ * With {@link ChosenOptions#isFuzzySearch()}, the options are matched by a {@link FuzzyMatcher} and the highlighted
+ * part of an option is the part matched with typos.
+ */
 class ClientResultsFilter implements ResultsFilter {
-    private static final RegExp regExpChars = RegExp.compile("[-[\\]{}()*+?.,\\\\^$|#\\s]", "g");
+    // maximum duration of a step of an incremental filtering, in milliseconds
+    private static final int STEP_DURATION = 10;
+    // number of options processed between two checks of the step duration
+    private static final int STEP_CHECK_INTERVAL = 256;
 
-    @Override
-    public void filter(String searchText, ChosenImpl chosen, boolean isShowing) {
-        ChosenOptions options = chosen.getOptions();
+    private static class FilterPass {
+        private final String query;
+        private final int errors;
+        private final int[] matches;
+        private final int size;
+
+        FilterPass(String query, int errors, int[] matches, int size) {
+            this.query = query;
+            this.errors = errors;
+            this.matches = matches;
+            this.size = size;
+        }
+    }
 
-        // TODO should be part of this object
-        String regexAnchor = options.isSearchContains() ? "" : "^";
-        // escape reg exp special chars
-        String escapedSearchText = regExpChars.replace(searchText, "\\$&");
+    /**
+     * Test the candidates of a pass, either at once or in several steps scheduled with
+     * {@link Scheduler#scheduleIncremental(RepeatingCommand)}.
+     */
+    private class FilterTask implements RepeatingCommand {
+        private final ChosenImpl chosen;
+        private final String searchText;
+        private final String query;
+        private final boolean searchContains;
+        private final FuzzyMatcher fuzzyMatcher;
+        private final PrefixIndex prefixIndex;
+        private final boolean isShowing;
+        private final FilterPass previous;
+        // array indexes of the options to test, null to test every option
+        private final int[] candidates;
+        private final int candidatesCount;
+        private final int[] matches;
 
-        RegExp regex = RegExp.compile(regexAnchor + escapedSearchText, "i");
-        RegExp zregex = RegExp.compile("(" + escapedSearchText + ")", "i");
+        private int next;
+        private int results;
+        private boolean cancelled;
 
-        int results = 0;
+        FilterTask(ChosenImpl chosen, String searchText, String query, boolean searchContains,
+                FuzzyMatcher fuzzyMatcher, PrefixIndex prefixIndex, boolean isShowing, FilterPass previous,
+                int[] candidates, int candidatesCount) {
+            this.chosen = chosen;
+            this.searchText = searchText;
+            this.query = query;
+            this.searchContains = searchContains;
+            this.fuzzyMatcher = fuzzyMatcher;
+            this.prefixIndex = prefixIndex;
+            this.isShowing = isShowing;
+            this.previous = previous;
+            this.candidates = candidates;
+            this.candidatesCount = candidatesCount;
 
-        List<SelectItem> selectItems = chosen.getSelectItems();
+            matches = new int[candidatesCount];
+        }
 
-        for (SelectItem item : selectItems) {
-            if (item.isDisabled() || item.isEmpty()) {
-                continue;
+        @Override
+        public boolean execute() {
+            // the results have been modified by the component since the task was started
+            if (cancelled || chosen.getResultsRevision() != passesRevision) {
+                return false;
             }
 
-            if (item.isGroup()) {
-                $('#' + item.getDomId()).css("display", "none");
-            } else {
-                OptionItem option = (OptionItem) item;
-
-                if (!(chosen.isMultiple() && option.isSelected())) {
-                    boolean found = false;
-                    String resultId = option.getDomId();
-                    GQuery result = $("#" + resultId);
-                    String optionContent = option.getHtml();
-                    if (optionContent == null || optionContent.trim().isEmpty()) {
-                        optionContent = option.getText();
-                    }
+            Duration duration = new Duration();
+            while (next < candidatesCount) {
+                testCandidate(next++);
 
-                    if (regex.test(optionContent)) {
-                        found = true;
-                        results++;
-                    } else if (optionContent.contains(" ") || optionContent.indexOf("[") == 0) {
-                        String[] parts = optionContent.replaceAll("\\[|\\]", "").split(" ");
-                        for (String part : parts) {
-                            if (regex.test(part)) {
-                                found = true;
-                                results++;
-                            }
-                        }
+                if (next % STEP_CHECK_INTERVAL == 0 && duration.elapsedMillis() > STEP_DURATION) {
+                    if (isShowing) {
+                        chosen.positionDropdownResult();
                     }
+                    return true;
+                }
+            }
+
+            finish();
+            return false;
+        }
+
+        void run() {
+            while (next < candidatesCount) {
+                testCandidate(next++);
+            }
+
+            finish();
+        }
+
+        private void finish() {
+            if (task == this) {
+                task = null;
+            }
+
+            if (previous != null && previous.query.equals(query)) {
+                passes.remove(passes.size() - 1);
+            }
+            passes.add(new FilterPass(query, getErrors(), matches, results));
+
+            activeOptions = matches;
+            activeCount = results;
+
+            if (results < 1 && !searchText.isEmpty()) {
+                chosen.noResults(searchText);
+            } else {
+                chosen.winnowResultsSetHighlight();
+            }
+
+            if (isShowing) {
+                chosen.positionDropdownResult();
+            }
+        }
+
+        private int getErrors() {
+            return fuzzyMatcher == null ? 0 : fuzzyMatcher.getMaxErrors();
+        }
+
+        private void testCandidate(int candidate) {
+            List<SelectItem> selectItems = chosen.getSelectItems();
+            SelectItem item = selectItems.get(candidates == null ? candidate : candidates[candidate]);
+            if (item.isDisabled() || item.isEmpty() || item.isGroup()) {
+                return;
+            }
+
+            OptionItem option = (OptionItem) item;
+
+            if (!(chosen.isMultiple() && option.isSelected())) {
+                int matchStart;
+                int matchLength;
+                if (fuzzyMatcher != null) {
+                    matchStart = fuzzyMatcher.match(option.getSearchText());
+                    matchLength = fuzzyMatcher.getMatchLength();
+                } else if (prefixIndex != null) {
+                    // the candidates are the options having a word starting with the query
+                    matchStart = prefixIndex.getMatchStart(option.getArrayIndex());
+                    matchLength = query.length();
+                } else {
+                    matchStart = match(option, query, searchContains);
+                    matchLength = query.length();
+                }
 
-                    if (found) {
-                        String text;
-                        if (searchText.length() > 0) {
-                            text = zregex.replace(optionContent, "<em>$1</em>");
-                        } else {
-                            text = optionContent;
-                        }
-
-                        result.html(text);
-                        chosen.resultActivate(result);
-
-                        if (option.getGroupArrayIndex() != -1) {
-                            $("#" + selectItems.get(option.getGroupArrayIndex()).getDomId()).css("display",
-                                    "list-item");
-                        }
-                    } else {
-                        if (chosen.getResultHighlight() != null
-                                && resultId.equals(chosen.getResultHighlight().attr("id"))) {
-                            chosen.resultClearHighlight();
-                        }
-                        chosen.resultDeactivate(result);
+                if (matchStart != -1) {
+                    matches[results++] = option.getArrayIndex();
+
+                    chosen.resultActivate(option, matchStart, matchLength);
+
+                    SelectItem group = option.getGroupArrayIndex() == -1 ? null
+                            : selectItems.get(option.getGroupArrayIndex());
+                    if (group != null && !group.active) {
+                        chosen.resultDisplayGroup(group, true);
                     }
+                } else {
+                    chosen.resultDeactivate(option);
                 }
             }
         }
+    }
+
+    private final List<FilterPass> passes = new ArrayList<FilterPass>();
+
+    private List<SelectItem> passesItems;
+    private int passesRevision;
+    private boolean passesSearchContains;
+    private boolean passesFuzzy;
+    private int[] groups;
+    private FilterTask task;
+    // options left active by the last searches, null if they are unknown. Can contain duplicates and inactive options
+    private int[] activeOptions;
+    private int activeCount;
+    private int[] candidateMarks;
+    private int candidateStamp;
+    private TrigramIndex trigramIndex;
+    private List<SelectItem> trigramIndexItems;
+    private PrefixIndex prefixIndex;
+    private List<SelectItem> prefixIndexItems;
+
+    @Override
+    public void filter(String searchText, ChosenImpl chosen, boolean isShowing) {
+        // a newer search supersedes the one still in progress
+        if (task != null) {
+            task.cancelled = true;
+            keepActiveOptions(task);
+            task = null;
+        }
+
+        boolean searchContains = chosen.getOptions().isSearchContains();
+        boolean fuzzy = chosen.getOptions().isFuzzySearch();
+        String query = SelectParser.toSearchText(searchText);
+
+        FuzzyMatcher fuzzyMatcher = fuzzy ? new FuzzyMatcher(query, FuzzyMatcher.getMaxErrors(query)) : null;
+        int errors = fuzzy ? fuzzyMatcher.getMaxErrors() : 0;
+
+        List<SelectItem> selectItems = chosen.getSelectItems();
+
+        if (selectItems != passesItems || chosen.getResultsRevision() != passesRevision
+                || searchContains != passesSearchContains || fuzzy != passesFuzzy) {
+            resetPasses(selectItems, chosen.getResultsRevision(), searchContains, fuzzy);
+        }
+
+        // forget the passes for queries that are not a prefix of the new one, and the passes tolerating fewer typos:
+        // they may have rejected options that the new query accepts
+        while (!passes.isEmpty() && (!query.startsWith(lastPass().query) || lastPass().errors < errors)) {
+            passes.remove(passes.size() - 1);
+        }
 
-        if (results < 1 && !searchText.isEmpty()) {
-            chosen.noResults(searchText);
+        FilterPass previous = passes.isEmpty() ? null : lastPass();
+
+        for (int groupIndex : groups) {
+            chosen.resultDisplayGroup(selectItems.get(groupIndex), false);
+        }
+
+        int[] candidates = null;
+        int candidatesCount = selectItems.size();
+        PrefixIndex wordIndex = null;
+
+        if (searchContains && !fuzzy && query.length() >= TrigramIndex.GRAM_LENGTH) {
+            // in searchContains mode, only the options containing every trigram of the query need to be tested
+            TrigramIndex index = getTrigramIndex(chosen, selectItems);
+            candidatesCount = index.mark(query);
+            candidates = new int[candidatesCount];
+            for (int i = 0; i < candidatesCount; i++) {
+                candidates[i] = index.getMarked(i);
+            }
+        } else if (!searchContains && !fuzzy && !query.isEmpty()) {
+            // otherwise, the options having a word starting with the query are found by binary search
+            wordIndex = getPrefixIndex(chosen, selectItems);
+            candidatesCount = wordIndex.mark(query);
+            candidates = new int[candidatesCount];
+            for (int i = 0; i < candidatesCount; i++) {
+                candidates[i] = wordIndex.getMarked(i);
+            }
+        } else if (previous != null) {
+            candidates = previous.matches;
+            candidatesCount = previous.size;
+        }
+
+        if (candidates != null) {
+            deactivateOthers(chosen, candidates, candidatesCount);
+        }
+
+        FilterTask filterTask = new FilterTask(chosen, searchText, query, searchContains, fuzzyMatcher, wordIndex,
+                isShowing, previous, candidates, candidatesCount);
+
+        int threshold = chosen.getOptions().getIncrementalFilterThreshold();
+        if (threshold >= 0 && filterTask.candidatesCount > threshold) {
+            task = filterTask;
+            Scheduler.get().scheduleIncremental(filterTask);
+        } else {
+            filterTask.run();
+        }
+    }
+
+    /**
+     * Deactivate the options left active by the last searches that are not among the candidates of the new one. The
+     * candidates are deactivated by the search itself if they don't match.
+     */
+    private void deactivateOthers(ChosenImpl chosen, int[] candidates, int candidatesCount) {
+        candidateStamp++;
+        for (int i = 0; i < candidatesCount; i++) {
+            candidateMarks[candidates[i]] = candidateStamp;
+        }
+
+        List<SelectItem> selectItems = chosen.getSelectItems();
+
+        if (activeOptions == null) {
+            // the options displayed by the component are unknown
+            for (SelectItem item : selectItems) {
+                deactivateOther(chosen, item);
+            }
         } else {
-            chosen.winnowResultsSetHighlight();
+            for (int i = 0; i < activeCount; i++) {
+                deactivateOther(chosen, selectItems.get(activeOptions[i]));
+            }
+        }
+    }
+
+    private void deactivateOther(ChosenImpl chosen, SelectItem item) {
+        if (item.isGroup() || item.isDisabled() || item.isEmpty()
+                || candidateMarks[item.getArrayIndex()] == candidateStamp) {
+            return;
         }
 
-        if (isShowing) {
-            chosen.positionDropdownResult();
+        OptionItem option = (OptionItem) item;
+        if (!(chosen.isMultiple() && option.isSelected())) {
+            chosen.resultDeactivate(option);
         }
     }
+
+    private PrefixIndex getPrefixIndex(ChosenImpl chosen, List<SelectItem> selectItems) {
+        // built once per list of options, like the trigram index
+        if (prefixIndex == null || prefixIndexItems != selectItems) {
+            OptionSource source = chosen.getItemsSource();
+            prefixIndex = source == null ? new PrefixIndex(selectItems) : new PrefixIndex(source.getPrefixIndex());
+            prefixIndexItems = selectItems;
+        }
+
+        return prefixIndex;
+    }
+
+    private TrigramIndex getTrigramIndex(ChosenImpl chosen, List<SelectItem> selectItems) {
+        // the index only depends on the options, it survives the changes of the results revision
+        if (trigramIndex == null || trigramIndexItems != selectItems) {
+            // the options copied from a shared source share its index
+            OptionSource source = chosen.getItemsSource();
+            trigramIndex = source == null ? new TrigramIndex(selectItems)
+                    : new TrigramIndex(source.getTrigramIndex());
+            trigramIndexItems = selectItems;
+        }
+
+        return trigramIndex;
+    }
+
+    /**
+     * Add the options activated by a search abandoned before its end to the active options: the candidates it didn't
+     * test yet kept their previous state.
+     */
+    private void keepActiveOptions(FilterTask abandoned) {
+        if (activeOptions == null) {
+            return;
+        }
+
+        int[] merged = new int[activeCount + abandoned.results];
+        System.arraycopy(activeOptions, 0, merged, 0, activeCount);
+        System.arraycopy(abandoned.matches, 0, merged, activeCount, abandoned.results);
+
+        activeOptions = merged;
+        activeCount = merged.length;
+    }
+
+    private FilterPass lastPass() {
+        return passes.get(passes.size() - 1);
+    }
+
+    /**
+     * Return the offset in the search text of the option where the query matches or -1 if the option doesn't match.
+     * Without the {@code searchContains} option, the query has to match the beginning of a word.
+     */
+    static int match(OptionItem option, String query, boolean searchContains) {
+        String optionText = option.getSearchText();
+
+        if (searchContains) {
+            return optionText.indexOf(query);
+        }
+
+        for (int wordStart : option.getWordStarts()) {
+            if (optionText.startsWith(query, wordStart)) {
+                return wordStart;
+            }
+        }
+
+        return -1;
+    }
+
+    private void resetPasses(List<SelectItem> selectItems, int revision, boolean searchContains, boolean fuzzy) {
+        passes.clear();
+        passesItems = selectItems;
+        passesRevision = revision;
+        passesSearchContains = searchContains;
+        passesFuzzy = fuzzy;
+
+        // the component may have changed the displayed results
+        activeOptions = null;
+        activeCount = 0;
+        candidateMarks = new int[selectItems.size()];
+        candidateStamp = 0;
+
+        int groupsCount = 0;
+        int[] groupIndexes = new int[selectItems.size()];
+        for (SelectItem item : selectItems) {
+            if (item.isGroup() && !item.isDisabled()) {
+                groupIndexes[groupsCount++] = item.getArrayIndex();
+            }
+        }
+
+        groups = new int[groupsCount];
+        System.arraycopy(groupIndexes, 0, groups, 0, groupsCount);
+    }
 }
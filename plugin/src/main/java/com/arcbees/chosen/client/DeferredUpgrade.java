@@ -0,0 +1,148 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.SelectElement;
+import com.google.gwt.query.client.Function;
+import com.google.gwt.query.client.GQuery;
+import com.google.gwt.user.client.Event;
+import com.google.web.bindery.event.shared.EventBus;
+
+import static com.google.gwt.query.client.GQuery.$;
+
+/**
+ * Upgrade of a select element into a Chosen component postponed until it is needed, see
+ * {@link ChosenOptions#setUpgradeOnDemand(boolean)}.
+ * <p/>
+ * The native select element stays displayed until it is focused, pressed or hovered, or until it comes near the
+ * viewport. Without IntersectionObserver, the select elements are upgraded when the browser is idle instead. The
+ * press that upgrades a select element opens the dropdown of the new component.
+ */
+class DeferredUpgrade {
+    private static final String DATA_KEY = "chosen-upgrade";
+    private static final String TRIGGER_EVENTS = "focus mousedown mouseover touchstart";
+    // distance from the viewport at which a select element is upgraded, so it is ready once scrolled into view
+    private static final String VIEWPORT_MARGIN = "200px";
+
+    static DeferredUpgrade get(Element element) {
+        return $(element).data(DATA_KEY, DeferredUpgrade.class);
+    }
+
+    private final SelectElement selectElement;
+    private final ChosenOptions options;
+    private final EventBus eventBus;
+    private final Function trigger = new Function() {
+        @Override
+        public boolean f(Event e) {
+            ChosenImpl impl = upgrade();
+
+            if (impl == null || "mouseover".equals(e.getType()) || "touchstart".equals(e.getType())) {
+                return true;
+            }
+
+            // give the focus to the component, the native dropdown must not open
+            GQuery container = impl.getContainer();
+            GQuery focusable = container.children("a");
+            (focusable.isEmpty() ? container.find("input") : focusable).focus();
+
+            if ("mousedown".equals(e.getType())) {
+                // the press was meant to open the dropdown, open the one of the component instead
+                impl.resultsShow();
+            }
+            return false;
+        }
+    };
+
+    private JavaScriptObject observer;
+
+    DeferredUpgrade(SelectElement selectElement, ChosenOptions options, EventBus eventBus) {
+        this.selectElement = selectElement;
+        this.options = options;
+        this.eventBus = eventBus;
+    }
+
+    void start() {
+        $(selectElement).data(DATA_KEY, this);
+        $(selectElement).bind(TRIGGER_EVENTS, trigger);
+
+        observer = observe(selectElement, VIEWPORT_MARGIN);
+        if (observer == null) {
+            ChosenImpl.scheduleIdle(new ScheduledCommand() {
+                @Override
+                public void execute() {
+                    upgrade();
+                }
+            });
+        }
+    }
+
+    /**
+     * Forget the upgrade, the select element stays as is.
+     */
+    void cancel() {
+        if (get(selectElement) != this) {
+            return;
+        }
+
+        $(selectElement).unbind(TRIGGER_EVENTS, trigger);
+        $(selectElement).removeData(DATA_KEY);
+
+        if (observer != null) {
+            disconnect(observer);
+            observer = null;
+        }
+    }
+
+    /**
+     * Create the component now if it's still pending. Return the component or null if the upgrade has been cancelled.
+     */
+    private ChosenImpl upgrade() {
+        if (get(selectElement) != this) {
+            return null;
+        }
+
+        cancel();
+
+        return Chosen.init(new ChosenImplFactory(), selectElement, options, eventBus);
+    }
+
+    private native JavaScriptObject observe(Element element, String margin) /*-{
+        if (!$wnd.IntersectionObserver) {
+            return null;
+        }
+
+        var upgrade = this;
+        var observer = new $wnd.IntersectionObserver($entry(function (entries) {
+            for (var i = 0; i < entries.length; i++) {
+                if (entries[i].isIntersecting) {
+                    upgrade.@com.arcbees.chosen.client.DeferredUpgrade::upgrade()();
+                    return;
+                }
+            }
+        }), {rootMargin: margin});
+        observer.observe(element);
+
+        return observer;
+    }-*/;
+
+    private static native void disconnect(JavaScriptObject observer) /*-{
+        observer.disconnect();
+    }-*/;
+}
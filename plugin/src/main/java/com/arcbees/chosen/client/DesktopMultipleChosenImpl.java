@@ -16,6 +16,9 @@
 
 package com.arcbees.chosen.client;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.arcbees.chosen.client.SelectParser.OptionItem;
 import com.arcbees.chosen.client.event.MaxSelectedEvent;
 import com.google.gwt.core.client.Scheduler;
@@ -34,9 +37,15 @@ import static com.google.gwt.safehtml.shared.SafeHtmlUtils.fromTrustedString;
 public class DesktopMultipleChosenImpl extends ChosenImpl {
     private static final int BACKSPACE = 8;
 
+    // element of the choice of each selected option, by result key
+    private final Map<Integer, Element> choiceElements = new HashMap<Integer, Element>();
+
     private GQuery pendingBackstroke;
     private int backstrokeLength;
     private boolean pendingDestroyClick;
+    private TextMeasurer searchFieldMeasurer;
+    private String searchFieldScaledText;
+    private int searchFieldScaledWidth;
 
     @Override
     public boolean isMultiple() {
@@ -91,13 +100,15 @@ public class DesktopMultipleChosenImpl extends ChosenImpl {
         if (maxSelectedOptionsReached()) {
             fireEvent(new MaxSelectedEvent(this));
         } else {
-            String choiceId = getContainerId() + "_c_" + option.getArrayIndex();
+            String choiceId = getContainerId() + "_c_" + option.resultKey;
             choices++;
             SafeHtml html = fromTrustedString(option.getHtml());
-            searchContainer.before(ChosenTemplate.templates.choice(choiceId, getCss().searchChoice(), html,
-                    getCss().searchChoiceClose(), "" + option.getArrayIndex(), option.getValue(),
+            GQuery choice = $(ChosenTemplate.templates.choice(choiceId, getCss().searchChoice(), html,
+                    getCss().searchChoiceClose(), "" + option.resultKey, option.getValue(),
                     getCss().iconCross()).asString());
-            $('#' + choiceId).find("a").click(new Function() {
+            searchContainer.before(choice);
+            choiceElements.put(option.resultKey, choice.get(0));
+            choice.find("a").click(new Function() {
                 public boolean f(final Event e) {
                     choiceDestroyLinkClick(e);
                     return false;
@@ -115,6 +126,12 @@ public class DesktopMultipleChosenImpl extends ChosenImpl {
         return true;
     }
 
+    @Override
+    protected void choiceDestroy(GQuery link) {
+        choiceElements.remove(Integer.parseInt(link.attr("rel")));
+        super.choiceDestroy(link);
+    }
+
     @Override
     protected void containerMouseDownImpl(Event e, GQuery element) {
         if (pendingDestroyClick) {
@@ -174,7 +191,7 @@ public class DesktopMultipleChosenImpl extends ChosenImpl {
             }
         } else if (pendingBackstroke == null) {
             resultClearHighlight();
-            resultsSearch();
+            requestSearch();
         }
     }
 
@@ -202,38 +219,48 @@ public class DesktopMultipleChosenImpl extends ChosenImpl {
     }
 
     @Override
-    protected void resultsBuild(boolean init, String defaultText, boolean customFilter) {
+    protected void clearChoices() {
         if (choices > 0) {
             getSearchChoices().find("li." + getCss().searchChoice()).remove();
             choices = 0;
         }
-        super.resultsBuild(init, defaultText, customFilter);
+        choiceElements.clear();
+    }
+
+    @Override
+    protected void removeChoice(OptionItem previous) {
+        Element choice = choiceElements.remove(previous.resultKey);
+        if (choice != null) {
+            $(choice).remove();
+            choices--;
+        }
     }
 
     @Override
     protected void searchFieldScale(int fWidth) {
-        StringBuilder styleBlock =
-                new StringBuilder("position:absolute; " + (isRTL() ? "right" : "left") + ": -1000px; top: -1000px; " +
-                        "visibility:hidden;");
-        String[] styleToCopy =
-                {"font-size", "font-style", "font-weight", "font-family", "line-height", "text-transform",
-                        "letter-spacing"};
-
-        for (String style : styleToCopy) {
-            styleBlock.append(style).append(':').append(getSearchField().css(style)).append(";");
+        String text = getSearchField().val();
+        if (text == null) {
+            text = "";
         }
 
-        GQuery div = $("<div />").attr("style", styleBlock.toString()).text(getSearchField().val());
-        $("body").append(div);
+        if (text.equals(searchFieldScaledText) && fWidth == searchFieldScaledWidth) {
+            return;
+        }
+
+        if (searchFieldMeasurer == null) {
+            searchFieldMeasurer = new TextMeasurer(getSearchField());
+        }
 
-        int w = div.width() + 25;
-        div.remove();
+        int w = searchFieldMeasurer.measure(text) + 25;
 
         if (w > fWidth - 10) {
             w = fWidth - 10;
         }
 
         getSearchField().css("width", w + "px");
+
+        searchFieldScaledText = text;
+        searchFieldScaledWidth = fWidth;
     }
 
     @Override
@@ -246,6 +273,11 @@ public class DesktopMultipleChosenImpl extends ChosenImpl {
         return !result.hasClass(getCss().resultSelected());
     }
 
+    @Override
+    protected boolean shouldActivateResult(OptionItem option) {
+        return !option.isSelected();
+    }
+
     @Override
     protected void showSearchFieldDefault(String defaultText) {
         if (choices < 1 && !activeField) {
@@ -260,6 +292,12 @@ public class DesktopMultipleChosenImpl extends ChosenImpl {
     protected void update() {
         resultsResetCleanup();
 
+        // the styles of the search field may have changed
+        if (searchFieldMeasurer != null) {
+            searchFieldMeasurer.reset();
+        }
+        searchFieldScaledText = null;
+
         super.update();
     }
 
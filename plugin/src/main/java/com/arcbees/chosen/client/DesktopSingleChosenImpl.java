@@ -16,6 +16,7 @@
 
 package com.arcbees.chosen.client;
 
+import com.arcbees.chosen.client.SelectParser.OptionItem;
 import com.google.gwt.dom.client.SelectElement;
 import com.google.gwt.query.client.Function;
 import com.google.gwt.query.client.GQuery;
@@ -26,7 +27,7 @@ import com.google.web.bindery.event.shared.EventBus;
 
 public class DesktopSingleChosenImpl extends ChosenImpl {
     private Function activateAction;
-    private GQuery resultSingleSelected;
+    private OptionItem resultSingleSelected;
 
     @Override
     protected void bind() {
@@ -107,7 +108,7 @@ public class DesktopSingleChosenImpl extends ChosenImpl {
         super.resultDeactivate(query, selected);
 
         if (selected) {
-            resultSingleSelected = query;
+            resultSingleSelected = getOptionItem(query);
         }
     }
 
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Find a query in a text allowing a few typos (inserted, deleted or substituted characters).
+ * <p/>
+ * Uses the bit-parallel Bitap algorithm (Wu-Manber): each state of the automaton is a bit of an int, so a character
+ * of the text is processed with a few bitwise operations per allowed error. The query and the texts are expected to
+ * be lower-cased already. Queries longer than {@value #MAX_FUZZY_LENGTH} characters are only found exactly.
+ */
+class FuzzyMatcher {
+    private static final int MAX_FUZZY_LENGTH = 31;
+    private static final int ASCII_LENGTH = 128;
+
+    /**
+     * Return the number of errors tolerated for a query: none for the very short queries, where a typo would match
+     * almost every option.
+     */
+    static int getMaxErrors(String query) {
+        if (query.length() < 3) {
+            return 0;
+        } else if (query.length() < 6) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private final String query;
+    private final int maxErrors;
+    private final int[] asciiMasks = new int[ASCII_LENGTH];
+    private final Map<Character, Integer> otherMasks = new HashMap<Character, Integer>();
+    private final int[] states;
+
+    private int matchLength;
+
+    FuzzyMatcher(String query, int maxErrors) {
+        this.query = query;
+        this.maxErrors = query.length() > MAX_FUZZY_LENGTH ? 0 : maxErrors;
+        this.states = new int[this.maxErrors + 1];
+
+        if (query.length() <= MAX_FUZZY_LENGTH) {
+            // bit i of the mask of a character is set if the character is at position i in the query
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (c < ASCII_LENGTH) {
+                    asciiMasks[c] |= 1 << i;
+                } else {
+                    Integer mask = otherMasks.get(c);
+                    otherMasks.put(c, (mask == null ? 0 : mask) | 1 << i);
+                }
+            }
+        }
+    }
+
+    int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * Return the length of the part of the text matched by the last successful call to {@link #match(String)}.
+     */
+    int getMatchLength() {
+        return matchLength;
+    }
+
+    /**
+     * Return the offset in {@code text} of the best match of the query, the one with the fewest errors, or -1 if the
+     * query cannot be found with at most {@link #getMaxErrors()} errors.
+     */
+    int match(String text) {
+        int length = query.length();
+
+        if (length == 0 || length > MAX_FUZZY_LENGTH) {
+            matchLength = length;
+            return text.indexOf(query);
+        }
+
+        // states[d] has bit i set if the first i + 1 characters of the query end here with at most d errors
+        for (int d = 0; d <= maxErrors; d++) {
+            states[d] = (1 << d) - 1;
+        }
+
+        int found = 1 << (length - 1);
+        int bestErrors = maxErrors + 1;
+        int bestEnd = -1;
+
+        for (int i = 0; i < text.length() && bestErrors > 0; i++) {
+            int mask = getMask(text.charAt(i));
+
+            int previous = states[0];
+            states[0] = ((previous << 1) | 1) & mask;
+
+            for (int d = 1; d <= maxErrors; d++) {
+                int current = states[d];
+                states[d] = (((current << 1) | 1) & mask)
+                        // the character of the text is substituted or inserted
+                        | ((previous << 1) | 1) | previous
+                        // a character of the query is missing from the text
+                        | ((states[d - 1] << 1) | 1);
+                previous = current;
+            }
+
+            for (int d = 0; d < bestErrors; d++) {
+                if ((states[d] & found) != 0) {
+                    bestErrors = d;
+                    bestEnd = i;
+                    break;
+                }
+            }
+        }
+
+        if (bestEnd == -1) {
+            return -1;
+        }
+
+        int start = findStart(text, bestEnd - length + 1, bestEnd, bestErrors);
+        matchLength = bestEnd - start + 1;
+        return start;
+    }
+
+    /**
+     * The automaton only tells where a match ends. With errors, the match can start up to {@code errors} characters
+     * around {@code start}: prefer the closest position where the first character of the query is found.
+     */
+    private int findStart(String text, int start, int end, int errors) {
+        for (int offset = 0; offset <= errors; offset++) {
+            if (isQueryStart(text, start - offset, end)) {
+                return start - offset;
+            }
+            if (isQueryStart(text, start + offset, end)) {
+                return start + offset;
+            }
+        }
+
+        return Math.max(0, start);
+    }
+
+    private boolean isQueryStart(String text, int position, int end) {
+        return position >= 0 && position <= end && text.charAt(position) == query.charAt(0);
+    }
+
+    private int getMask(char c) {
+        if (c < ASCII_LENGTH) {
+            return asciiMasks[c];
+        }
+
+        Integer mask = otherMasks.get(c);
+        return mask == null ? 0 : mask;
+    }
+}
@@ -18,6 +18,7 @@ package com.arcbees.chosen.client;
 
 import com.arcbees.chosen.client.SelectParser.OptionItem;
 import com.arcbees.chosen.client.event.MaxSelectedEvent;
+import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.OptionElement;
 import com.google.gwt.dom.client.SelectElement;
 import com.google.gwt.query.client.GQuery;
@@ -31,11 +32,17 @@ public class MobileMultipleChosenImpl extends AbstractMobileChosenImpl {
     }
 
     @Override
-    protected void resultsBuild(boolean init, String defaultText, boolean customFilter) {
+    protected void clearChoices() {
         if (choices > 0) {
             choices = 0;
         }
-        super.resultsBuild(init, defaultText, customFilter);
+    }
+
+    @Override
+    protected void removeChoice(OptionItem previous) {
+        if (choices > 0) {
+            choices--;
+        }
     }
 
     @Override
@@ -43,10 +50,12 @@ public class MobileMultipleChosenImpl extends AbstractMobileChosenImpl {
         if (maxSelectedOptionsReached()) {
             fireEvent(new MaxSelectedEvent(this));
         } else {
-            String optionSelector = "#" + getContainerId() + "_o_" + item.getArrayIndex();
             choices++;
 
-            getSearchResults().find(optionSelector).addClass(getCss().resultSelected());
+            Element result = getResultElement(item);
+            if (result != null) {
+                result.addClassName(getCss().resultSelected());
+            }
         }
     }
 
@@ -110,6 +119,8 @@ public class MobileMultipleChosenImpl extends AbstractMobileChosenImpl {
         }
 
         animateListItem(element, false);
+
+        invalidateResults();
     }
 
     @Override
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.arcbees.chosen.client.SelectParser.GroupItem;
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.NodeList;
+import com.google.gwt.dom.client.OptGroupElement;
+import com.google.gwt.dom.client.OptionElement;
+import com.google.gwt.dom.client.SelectElement;
+
+/**
+ * Options shared by the components displaying the same list, see {@link ChosenOptions#setOptionSource(OptionSource)}.
+ * <p/>
+ * The search text of the options and the search indexes of the default filter are computed once for all the
+ * components. Each component still reads its own options, to check that they are the same as the options of the
+ * source and to read their selected state, and gets its own copy of the items, since it keeps its own state of the
+ * results. The source is immutable: a component whose options differ from the source parses them.
+ */
+public class OptionSource {
+    private final List<SelectItem> items;
+    private final int optionsCount;
+    private final int groupsCount;
+
+    private PrefixIndex prefixIndex;
+    private TrigramIndex trigramIndex;
+
+    /**
+     * Parse the options of {@code select}. The selected state of the options is not part of the source.
+     */
+    public OptionSource(SelectElement select) {
+        items = Collections.unmodifiableList(new SelectParser().parse(select));
+        optionsCount = select.getOptions().getLength();
+
+        int groups = 0;
+        for (SelectItem item : items) {
+            if (item.isGroup()) {
+                groups++;
+            }
+        }
+        groupsCount = groups;
+    }
+
+    /**
+     * Return the number of option elements of the source, groups excluded.
+     */
+    public int getOptionsCount() {
+        return optionsCount;
+    }
+
+    /**
+     * Return the items of {@code select} copied from the source, or null if the options of {@code select} differ from
+     * the options of the source: they don't have the same number of options or groups, an option doesn't have the
+     * same value, text, html, classes, style or disabled state, or it doesn't belong to the same group.
+     */
+    List<SelectItem> createItems(SelectElement select) {
+        NodeList<OptionElement> options = select.getOptions();
+        NodeList<Element> groupElements = select.getElementsByTagName("optgroup");
+        if (options.getLength() != optionsCount || groupElements.getLength() != groupsCount) {
+            return null;
+        }
+
+        List<SelectItem> copies = new ArrayList<SelectItem>(items.size());
+        Element parent = select;
+        int groupPosition = 0;
+
+        for (SelectItem item : items) {
+            if (item.isGroup()) {
+                GroupItem group = (GroupItem) item;
+                OptGroupElement groupElement = OptGroupElement.as(groupElements.getItem(groupPosition++));
+                if (!group.getLabel().equals(groupElement.getLabel())
+                        || group.isDisabled() != groupElement.isDisabled()) {
+                    return null;
+                }
+
+                parent = groupElement;
+                copies.add(group.copy());
+            } else {
+                OptionItem option = (OptionItem) item;
+                OptionElement element = options.getItem(option.getOptionsIndex());
+                if (!isSameOption(option, element, option.getGroupArrayIndex() == -1 ? select : parent)) {
+                    // the options of the select have been modified since the source was parsed
+                    return null;
+                }
+
+                OptionItem copy = option.copy();
+                copy.setSelected(!copy.isEmpty() && element.isSelected());
+                copies.add(copy);
+            }
+        }
+
+        return copies;
+    }
+
+    PrefixIndex getPrefixIndex() {
+        if (prefixIndex == null) {
+            prefixIndex = new PrefixIndex(items);
+        }
+
+        return prefixIndex;
+    }
+
+    TrigramIndex getTrigramIndex() {
+        if (trigramIndex == null) {
+            trigramIndex = new TrigramIndex(items);
+        }
+
+        return trigramIndex;
+    }
+
+    /**
+     * Return true if the option element has the content the option was parsed from, in the same parent element.
+     */
+    private boolean isSameOption(OptionItem option, OptionElement element, Element parent) {
+        String text = element.getText();
+        if (text == null || text.isEmpty()) {
+            return option.isEmpty();
+        }
+
+        String label = element.getLabel();
+        if (label == null || label.isEmpty()) {
+            label = text;
+        }
+
+        if (option.isEmpty() || element.getParentElement() != parent) {
+            return false;
+        }
+
+        // the options of a disabled group are disabled
+        boolean disabled = element.isDisabled()
+                || "OPTGROUP".equalsIgnoreCase(parent.getNodeName()) && OptGroupElement.as(parent).isDisabled();
+
+        return label.equals(option.getText())
+                && element.getValue().equals(option.getValue())
+                && element.getInnerHTML().equals(option.getHtml())
+                && element.getClassName().equals(option.getClasses())
+                && SelectParser.getCssText(element.getStyle()).equals(option.getStyle())
+                && disabled == option.isDisabled();
+    }
+}
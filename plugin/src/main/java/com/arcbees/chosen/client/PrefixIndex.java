@@ -0,0 +1,168 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+
+/**
+ * Sorted array of the parts of the options starting at a word, used to find the options having a word starting with
+ * a query by binary search.
+ * <p/>
+ * All the parts starting with the query are adjacent in the array, so finding the matching options costs a binary
+ * search plus the number of matches, whatever the number of options.
+ */
+class PrefixIndex {
+    private static class Token {
+        private final String text;
+        private final int arrayIndex;
+        private final int start;
+
+        Token(String text, int arrayIndex, int start) {
+            this.text = text;
+            this.arrayIndex = arrayIndex;
+            this.start = start;
+        }
+    }
+
+    private final String[] tokens;
+    private final int[] tokenItems;
+    private final int[] tokenStarts;
+    private final int[] marks;
+    private final int[] matchStarts;
+    private final int[] marked;
+
+    private int stamp;
+    private int markedCount;
+
+    PrefixIndex(List<SelectItem> selectItems) {
+        List<Token> sorted = new ArrayList<Token>();
+
+        for (SelectItem item : selectItems) {
+            if (item.isGroup() || item.isDisabled() || item.isEmpty()) {
+                continue;
+            }
+
+            OptionItem option = (OptionItem) item;
+            String text = option.getSearchText();
+            for (int wordStart : option.getWordStarts()) {
+                sorted.add(new Token(text.substring(wordStart), option.getArrayIndex(), wordStart));
+            }
+        }
+
+        Collections.sort(sorted, new Comparator<Token>() {
+            @Override
+            public int compare(Token token, Token other) {
+                return token.text.compareTo(other.text);
+            }
+        });
+
+        tokens = new String[sorted.size()];
+        tokenItems = new int[sorted.size()];
+        tokenStarts = new int[sorted.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            Token token = sorted.get(i);
+            tokens[i] = token.text;
+            tokenItems[i] = token.arrayIndex;
+            tokenStarts[i] = token.start;
+        }
+
+        marks = new int[selectItems.size()];
+        matchStarts = new int[selectItems.size()];
+        marked = new int[selectItems.size()];
+    }
+
+    /**
+     * Create an index sharing the tokens of {@code index}, built for another copy of the same options, with its own
+     * marks.
+     */
+    PrefixIndex(PrefixIndex index) {
+        tokens = index.tokens;
+        tokenItems = index.tokenItems;
+        tokenStarts = index.tokenStarts;
+        marks = new int[index.marks.length];
+        matchStarts = new int[index.marks.length];
+        marked = new int[index.marks.length];
+    }
+
+    /**
+     * Mark the options having a word starting with {@code query}, see {@link #isMarked(int)}. Return the number of
+     * marked options, see {@link #getMarked(int)}.
+     */
+    int mark(String query) {
+        stamp++;
+        markedCount = 0;
+
+        for (int i = lowerBound(query); i < tokens.length && tokens[i].startsWith(query); i++) {
+            int arrayIndex = tokenItems[i];
+
+            if (marks[arrayIndex] != stamp) {
+                marks[arrayIndex] = stamp;
+                matchStarts[arrayIndex] = tokenStarts[i];
+                marked[markedCount++] = arrayIndex;
+            } else if (tokenStarts[i] < matchStarts[arrayIndex]) {
+                // keep the first word of the option matching the query
+                matchStarts[arrayIndex] = tokenStarts[i];
+            }
+        }
+
+        return markedCount;
+    }
+
+    /**
+     * Return the array index of the option at {@code position} among the options marked by the last call to
+     * {@link #mark(String)}, in no particular order.
+     */
+    int getMarked(int position) {
+        return marked[position];
+    }
+
+    /**
+     * Return true if the option has a word starting with the query given to the last call to {@link #mark(String)}.
+     */
+    boolean isMarked(int arrayIndex) {
+        return marks[arrayIndex] == stamp;
+    }
+
+    /**
+     * Return the offset of the first word of a marked option starting with the query.
+     */
+    int getMatchStart(int arrayIndex) {
+        return matchStarts[arrayIndex];
+    }
+
+    private int lowerBound(String query) {
+        int low = 0;
+        int high = tokens.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens[middle].compareTo(query) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+
+/**
+ * Bounded min-heap keeping the best options found by a {@link RankingResultsFilter}. Once the heap is full, an option
+ * only enters it by replacing the worst option kept, so only the kept options are ever sorted.
+ * <p/>
+ * An option ranks above another one if it has a higher score, then if its search text is shorter, then if it comes
+ * first in the select element.
+ */
+class RankingHeap {
+    // the root is the worst of the options kept
+    private final OptionItem[] options;
+    private final int[] scores;
+    private final int[] matchStarts;
+    private int size;
+
+    RankingHeap(int capacity) {
+        options = new OptionItem[capacity];
+        scores = new int[capacity];
+        matchStarts = new int[capacity];
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            options[i] = null;
+        }
+        size = 0;
+    }
+
+    int getCapacity() {
+        return options.length;
+    }
+
+    /**
+     * Return the worst option kept, or null if the heap is empty.
+     */
+    OptionItem getWorst() {
+        return size == 0 ? null : options[0];
+    }
+
+    int getWorstMatchStart() {
+        return matchStarts[0];
+    }
+
+    /**
+     * Keep the option if the heap is not full or if it ranks above the worst option kept.
+     */
+    void offer(OptionItem option, int score, int matchStart) {
+        if (options.length == 0) {
+            return;
+        }
+
+        if (size < options.length) {
+            set(size, option, score, matchStart);
+            siftUp(size++);
+        } else if (isWorse(options[0], scores[0], option, score)) {
+            // replace the worst option kept
+            set(0, option, score, matchStart);
+            siftDown(0);
+        }
+    }
+
+    void removeWorst() {
+        size--;
+        move(size, 0);
+        options[size] = null;
+        siftDown(0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return true if the option at position {@code a} in the heap ranks below the one at position {@code b}.
+     */
+    private boolean isWorse(int a, int b) {
+        return isWorse(options[a], scores[a], options[b], scores[b]);
+    }
+
+    private boolean isWorse(OptionItem option, int score, OptionItem other, int otherScore) {
+        if (score != otherScore) {
+            return score < otherScore;
+        }
+
+        int length = option.getSearchText().length();
+        int otherLength = other.getSearchText().length();
+        if (length != otherLength) {
+            return length > otherLength;
+        }
+
+        return option.getArrayIndex() > other.getArrayIndex();
+    }
+
+    private void move(int from, int to) {
+        options[to] = options[from];
+        scores[to] = scores[from];
+        matchStarts[to] = matchStarts[from];
+    }
+
+    private void set(int position, OptionItem option, int score, int matchStart) {
+        options[position] = option;
+        scores[position] = score;
+        matchStarts[position] = matchStart;
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int worst = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+
+            if (left < size && isWorse(left, worst)) {
+                worst = left;
+            }
+            if (right < size && isWorse(right, worst)) {
+                worst = right;
+            }
+            if (worst == position) {
+                return;
+            }
+
+            swap(position, worst);
+            position = worst;
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isWorse(position, parent)) {
+                return;
+            }
+
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void swap(int a, int b) {
+        OptionItem option = options[a];
+        int score = scores[a];
+        int matchStart = matchStarts[a];
+
+        move(b, a);
+        set(b, option, score, matchStart);
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+
+/**
+ * Filter displaying only the options that best match the search, in order of relevance. See
+ * {@link ChosenOptions#setRankedResultsLimit(int)}.
+ * <p/>
+ * An exact match ranks first, then a match at the beginning of the option, then a match at the beginning of another
+ * word and finally, with the {@code searchContains} option, a match anywhere else. Options with the same score are
+ * ordered by length, then by their position in the select element. The best options are kept in a
+ * {@link RankingHeap}, so only the displayed options are sorted.
+ * <p/>
+ * Only the options displayed by the previous search are hidden before a new one, unless the component changed the
+ * results since then. Without search text, the options are displayed in their original order by a
+ * {@link ClientResultsFilter}.
+ */
+class RankingResultsFilter implements ResultsFilter {
+    private static final int EXACT_MATCH = 4;
+    private static final int PREFIX_MATCH = 3;
+    private static final int WORD_MATCH = 2;
+    private static final int CONTAINS_MATCH = 1;
+
+    private final ClientResultsFilter unrankedFilter = new ClientResultsFilter();
+
+    private RankingHeap heap = new RankingHeap(0);
+    // options displayed by the last search, null if they are unknown
+    private int[] rankedOptions;
+    private int rankedCount;
+    private List<SelectItem> rankedItems;
+    private int rankedRevision;
+
+    @Override
+    public void filter(String searchText, ChosenImpl chosen, boolean isShowing) {
+        String query = SelectParser.toSearchText(searchText);
+
+        if (query.isEmpty()) {
+            // the unranked filter displays other options
+            rankedOptions = null;
+            chosen.setRankedResults(null);
+            unrankedFilter.filter(searchText, chosen, isShowing);
+            return;
+        }
+
+        int limit = chosen.getOptions().getRankedResultsLimit();
+        boolean searchContains = chosen.getOptions().isSearchContains();
+        List<SelectItem> selectItems = chosen.getSelectItems();
+
+        if (heap.getCapacity() != limit) {
+            heap = new RankingHeap(limit);
+        }
+        heap.clear();
+
+        boolean rankedKnown = rankedOptions != null && selectItems == rankedItems
+                && chosen.getResultsRevision() == rankedRevision;
+
+        if (rankedKnown) {
+            for (int i = 0; i < rankedCount; i++) {
+                deactivate(chosen, (OptionItem) selectItems.get(rankedOptions[i]));
+            }
+        }
+
+        for (SelectItem item : selectItems) {
+            if (item.isGroup()) {
+                if (!rankedKnown) {
+                    // the groups would be meaningless in an order different from the original one
+                    chosen.resultDisplayGroup(item, false);
+                }
+                continue;
+            }
+
+            if (item.isDisabled() || item.isEmpty()) {
+                continue;
+            }
+
+            OptionItem option = (OptionItem) item;
+            if (chosen.isMultiple() && option.isSelected()) {
+                continue;
+            }
+
+            if (!rankedKnown) {
+                chosen.resultDeactivate(option);
+            }
+
+            String optionText = option.getSearchText();
+            int score;
+            int matchStart;
+
+            if (optionText.startsWith(query)) {
+                score = optionText.length() == query.length() ? EXACT_MATCH : PREFIX_MATCH;
+                matchStart = 0;
+            } else if ((matchStart = ClientResultsFilter.match(option, query, false)) != -1) {
+                score = WORD_MATCH;
+            } else if (searchContains && (matchStart = optionText.indexOf(query)) != -1) {
+                score = CONTAINS_MATCH;
+            } else {
+                continue;
+            }
+
+            heap.offer(option, score, matchStart);
+        }
+
+        rankedCount = heap.size();
+        if (rankedOptions == null || rankedOptions.length < rankedCount) {
+            rankedOptions = new int[limit];
+        }
+
+        List<OptionItem> ranked = new ArrayList<OptionItem>(rankedCount);
+        for (int i = 0; i < rankedCount; i++) {
+            ranked.add(null);
+        }
+
+        // remove the worst option until the heap is empty, filling the list from the end
+        for (int i = rankedCount - 1; i >= 0; i--) {
+            OptionItem option = heap.getWorst();
+            chosen.resultActivate(option, heap.getWorstMatchStart(), query.length());
+            ranked.set(i, option);
+            rankedOptions[i] = option.getArrayIndex();
+
+            heap.removeWorst();
+        }
+
+        rankedItems = selectItems;
+        rankedRevision = chosen.getResultsRevision();
+
+        chosen.setRankedResults(ranked);
+
+        if (ranked.isEmpty()) {
+            chosen.noResults(searchText);
+        } else {
+            chosen.resultDoHighlight(ranked.get(0));
+        }
+
+        if (isShowing) {
+            chosen.positionDropdownResult();
+        }
+    }
+
+    private void deactivate(ChosenImpl chosen, OptionItem option) {
+        // the options selected since the last search are hidden by the component
+        if (!(chosen.isMultiple() && option.isSelected())) {
+            chosen.resultDeactivate(option);
+        }
+    }
+}
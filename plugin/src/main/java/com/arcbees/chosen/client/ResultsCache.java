@@ -0,0 +1,157 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arcbees.chosen.client.SelectParser.GroupItem;
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+import com.google.gwt.core.client.Duration;
+
+/**
+ * Least recently used cache of the results loaded by an {@link AsyncResultsFilter}, keyed by search text.
+ * <p/>
+ * Entries expire after a configurable time. When a search is not cached but the complete results of one of its
+ * prefixes are, its results are computed locally by filtering the results of the prefix with
+ * {@link AsyncResultsFilter#matches(OptionItem, String, boolean)}.
+ * <p/>
+ * The component changes the state of the items it displays, so the entries computed from a prefix hold copies of its
+ * items instead of sharing them.
+ */
+class ResultsCache {
+    static class Entry {
+        private final List<SelectItem> items;
+        // position in items of the group of each item, -1 for the items outside of a group
+        private final int[] groups;
+        private final boolean complete;
+        private final double time;
+
+        Entry(List<SelectItem> items, int[] groups, boolean complete) {
+            this(items, groups, complete, Duration.currentTimeMillis());
+        }
+
+        Entry(List<SelectItem> items, int[] groups, boolean complete, double time) {
+            this.items = items;
+            this.groups = groups;
+            this.complete = complete;
+            this.time = time;
+        }
+
+        List<SelectItem> getItems() {
+            return items;
+        }
+
+        int[] getGroups() {
+            return groups;
+        }
+    }
+
+    private final AsyncResultsFilter filter;
+    private final Map<String, Entry> entries;
+    private final int timeToLive;
+
+    ResultsCache(AsyncResultsFilter filter, final int maxSize, int timeToLive) {
+        this.filter = filter;
+        this.timeToLive = timeToLive;
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Return the results of {@code searchText} or null if they are not cached and cannot be computed from the results
+     * of one of its prefixes.
+     */
+    Entry get(String searchText, boolean searchContains) {
+        Entry entry = getFresh(searchText);
+        if (entry != null) {
+            return entry;
+        }
+
+        for (int length = searchText.length() - 1; length >= 0; length--) {
+            Entry prefixEntry = getFresh(searchText.substring(0, length));
+
+            if (prefixEntry != null && prefixEntry.complete) {
+                entry = filter(prefixEntry, searchText, searchContains);
+                entries.put(searchText, entry);
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    void put(String searchText, Entry entry) {
+        entries.put(searchText, entry);
+    }
+
+    /**
+     * Return the current time in milliseconds, used to expire the entries.
+     */
+    double currentTime() {
+        return Duration.currentTimeMillis();
+    }
+
+    private Entry filter(Entry entry, String searchText, boolean searchContains) {
+        List<SelectItem> items = new ArrayList<SelectItem>();
+        int[] groups = new int[entry.items.size()];
+        int[] positions = new int[entry.items.size()];
+
+        for (int i = 0; i < entry.items.size(); i++) {
+            SelectItem item = entry.items.get(i);
+            positions[i] = -1;
+
+            if (item.isGroup() || !filter.matches((OptionItem) item, searchText, searchContains)) {
+                continue;
+            }
+
+            int group = entry.groups[i];
+            if (group != -1 && positions[group] == -1) {
+                // keep the groups containing at least one matching option
+                positions[group] = items.size();
+                groups[items.size()] = -1;
+                items.add(((GroupItem) entry.items.get(group)).copy());
+            }
+
+            positions[i] = items.size();
+            groups[items.size()] = group == -1 ? -1 : positions[group];
+            items.add(((OptionItem) item).copy());
+        }
+
+        // filtering complete results gives complete results, which expire with the results they come from
+        return new Entry(items, groups, true, entry.time);
+    }
+
+    private Entry getFresh(String searchText) {
+        Entry entry = entries.get(searchText);
+
+        if (entry != null && timeToLive > 0 && currentTime() - entry.time > timeToLive) {
+            entries.remove(searchText);
+            return null;
+        }
+
+        return entry;
+    }
+}
@@ -28,6 +28,15 @@ import com.google.gwt.dom.client.SelectElement;
 import com.google.gwt.dom.client.Style;
 
 public class SelectParser {
+    // letter without accent of each character from U+00C0 to U+017F, '.' when the character is kept as is
+    private static final char FOLDED_ACCENTS_START = '\u00c0';
+    private static final String FOLDED_ACCENTS = "aaaaaa.ceeeeiiiidnooooo.ouuuuy.."
+            + "aaaaaa.ceeeeiiiidnooooo.ouuuuy.y"
+            + "aaaaaaccccccccddddeeeeeeeeeegggg"
+            + "gggghhhhiiiiiiiiii..jjkkklllllll"
+            + "lllnnnnnnn..oooooo..rrrrrrssssss"
+            + "ssttttttuuuuuuuuuuuuwwyyyzzzzzzs";
+
     public static class GroupItem extends SelectItem {
 
         private int children;
@@ -53,6 +62,18 @@ public class SelectParser {
         public boolean isGroup() {
             return true;
         }
+
+        /**
+         * Return a copy of the group, see {@link OptionSource}.
+         */
+        GroupItem copy() {
+            GroupItem copy = new GroupItem();
+            copy.arrayIndex = arrayIndex;
+            copy.disabled = disabled;
+            copy.children = children;
+            copy.label = label;
+            return copy;
+        }
     }
 
     public static class OptionItem extends SelectItem {
@@ -67,6 +88,15 @@ public class SelectParser {
         private String style = "";
         private String text;
         private String value;
+        private String searchText;
+        private int[] wordStarts;
+
+        // part of the content matching the current search, maintained by ChosenImpl
+        int matchStart;
+        int matchLength;
+        // part of the content highlighted in the element of the result, when the results are not rendered on demand
+        int renderedMatchStart;
+        int renderedMatchLength;
 
         public int getArrayIndex() {
             return arrayIndex;
@@ -98,6 +128,7 @@ public class SelectParser {
 
         public void setHtml(String html) {
             this.html = html;
+            clearSearchIndex();
         }
 
         public int getOptionsIndex() {
@@ -122,6 +153,28 @@ public class SelectParser {
 
         public void setText(String text) {
             this.text = text;
+            clearSearchIndex();
+        }
+
+        /**
+         * Return the lower-cased content of the option used to match the search terms. It's computed once when the
+         * select element is parsed and cached until the html or the text of the option changes.
+         */
+        public String getSearchText() {
+            if (searchText == null) {
+                buildSearchIndex();
+            }
+            return searchText;
+        }
+
+        /**
+         * Return the offsets in {@link #getSearchText()} where a word of the option starts.
+         */
+        public int[] getWordStarts() {
+            if (wordStarts == null) {
+                buildSearchIndex();
+            }
+            return wordStarts;
         }
 
         public String getValue() {
@@ -160,6 +213,77 @@ public class SelectParser {
         public void setSelected(boolean selected) {
             this.selected = selected;
         }
+
+        /**
+         * Return the content displayed in the results list: the html of the option if any, its text otherwise.
+         */
+        String getContent() {
+            if (html == null || html.trim().isEmpty()) {
+                return text;
+            }
+            return html;
+        }
+
+        /**
+         * Return a copy of the option sharing its content and its search index, see {@link OptionSource}. The state
+         * of the copy in the results is reset.
+         */
+        OptionItem copy() {
+            OptionItem copy = new OptionItem();
+            copy.arrayIndex = arrayIndex;
+            copy.classes = classes;
+            copy.disabled = disabled;
+            copy.empty = empty;
+            copy.groupArrayIndex = groupArrayIndex;
+            copy.html = html;
+            copy.optionsIndex = optionsIndex;
+            copy.selected = selected;
+            copy.style = style;
+            copy.text = text;
+            copy.value = value;
+            copy.searchText = searchText;
+            copy.wordStarts = wordStarts;
+            return copy;
+        }
+
+        void buildSearchIndex() {
+            String content = getContent();
+            searchText = content == null ? "" : toSearchText(content);
+
+            int count = 1;
+            for (int i = 0; i < searchText.length(); i++) {
+                if (isWordSeparator(searchText.charAt(i))) {
+                    count++;
+                }
+            }
+
+            // a word starts at the beginning of the text, after a space or after an opening bracket. In a run of
+            // separators, only the last one starts a word
+            int[] starts = new int[count];
+            int size = 0;
+            starts[size++] = 0;
+            for (int i = 0; i < searchText.length() - 1; i++) {
+                if (isWordSeparator(searchText.charAt(i)) && !isWordSeparator(searchText.charAt(i + 1))) {
+                    starts[size++] = i + 1;
+                }
+            }
+
+            if (size < count) {
+                int[] trimmed = new int[size];
+                System.arraycopy(starts, 0, trimmed, 0, size);
+                starts = trimmed;
+            }
+            wordStarts = starts;
+        }
+
+        private void clearSearchIndex() {
+            searchText = null;
+            wordStarts = null;
+        }
+
+        private boolean isWordSeparator(char c) {
+            return c == ' ' || c == '[';
+        }
     }
 
     public abstract static class SelectItem {
@@ -167,6 +291,11 @@ public class SelectParser {
         protected boolean disabled;
         protected String domId;
 
+        // true if the item is currently displayed in the results, maintained by ChosenImpl
+        boolean active;
+        // identifies the result element and the choice of the item, kept when the select element is updated
+        int resultKey;
+
         public int getArrayIndex() {
             return arrayIndex;
         }
@@ -192,9 +321,12 @@ public class SelectParser {
 
     private final List<SelectItem> parsed;
 
+    private int arrayIndex;
     private int optionsIndex;
+    private boolean selectedOnly;
 
     public SelectParser() {
+        arrayIndex = 0;
         optionsIndex = 0;
         parsed = new ArrayList<SelectItem>();
     }
@@ -210,16 +342,27 @@ public class SelectParser {
         return parsed;
     }
 
+    /**
+     * Parse only the selected options of the select element. The indexes of the returned items are the same as the
+     * ones returned by {@link #parse(SelectElement)}.
+     */
+    public List<SelectItem> parseSelected(SelectElement select) {
+        selectedOnly = true;
+        return parse(select);
+    }
+
     private void addGroup(OptGroupElement group) {
-        int position = parsed.size();
+        int position = arrayIndex++;
 
-        GroupItem item = new GroupItem();
-        item.arrayIndex = position;
-        item.label = group.getLabel();
-        item.children = 0;
-        item.disabled = group.isDisabled();
+        if (!selectedOnly) {
+            GroupItem item = new GroupItem();
+            item.arrayIndex = position;
+            item.label = group.getLabel();
+            item.children = 0;
+            item.disabled = group.isDisabled();
 
-        parsed.add(item);
+            parsed.add(item);
+        }
 
         NodeList<Node> children = group.getChildNodes();
         for (int i = 0; i < children.getLength(); i++) {
@@ -245,15 +388,21 @@ public class SelectParser {
     }
 
     private void addOption(OptionElement option, int groupPosition, boolean groupDisabled) {
+        if (selectedOnly && !option.isSelected()) {
+            arrayIndex++;
+            optionsIndex++;
+            return;
+        }
+
         String optionText = option.getText();
 
         OptionItem item = new OptionItem();
-        item.arrayIndex = parsed.size();
+        item.arrayIndex = arrayIndex;
         item.optionsIndex = optionsIndex;
 
         if (optionText != null && optionText.length() > 0) {
 
-            if (groupPosition != -1) {
+            if (groupPosition != -1 && !selectedOnly) {
                 ((GroupItem) parsed.get(groupPosition)).children++;
             }
 
@@ -271,6 +420,7 @@ public class SelectParser {
             item.classes = option.getClassName();
             item.style = getCssText(option.getStyle());
             item.empty = false;
+            item.buildSearchIndex();
 
         } else {
             item.empty = true;
@@ -278,10 +428,48 @@ public class SelectParser {
         }
 
         parsed.add(item);
+        arrayIndex++;
         optionsIndex++;
     }
 
-    private native String getCssText(Style s)/*-{
+    /**
+     * Normalize a text so that it can be compared with {@link OptionItem#getSearchText()}: the text is lower-cased and
+     * the accents are removed from the latin letters, so "Sao" finds "S\u00e3o". Each character is replaced by
+     * exactly one character, the offsets in the normalized text are the offsets in the original text.
+     */
+    static String toSearchText(String text) {
+        String lowerCase = text.toLowerCase();
+
+        boolean aligned = lowerCase.length() == text.length();
+        StringBuilder builder = null;
+
+        for (int i = 0; i < text.length(); i++) {
+            // some characters expand when lower-cased, keep the offsets aligned with the original text
+            char c = aligned ? lowerCase.charAt(i) : Character.toLowerCase(text.charAt(i));
+            char folded = foldAccent(c);
+
+            if (builder == null && (folded != c || !aligned)) {
+                builder = new StringBuilder(text.length());
+                builder.append(lowerCase, 0, i);
+            }
+            if (builder != null) {
+                builder.append(folded);
+            }
+        }
+
+        return builder == null ? lowerCase : builder.toString();
+    }
+
+    private static char foldAccent(char c) {
+        if (c < FOLDED_ACCENTS_START || c >= FOLDED_ACCENTS_START + FOLDED_ACCENTS.length()) {
+            return c;
+        }
+
+        char folded = FOLDED_ACCENTS.charAt(c - FOLDED_ACCENTS_START);
+        return folded == '.' ? c : folded;
+    }
+
+    static native String getCssText(Style s)/*-{
         return s.cssText;
     }-*/;
 
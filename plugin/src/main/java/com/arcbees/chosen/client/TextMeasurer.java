@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.query.client.GQuery;
+
+/**
+ * Measure the width of texts rendered with the font of an element.
+ * <p/>
+ * The font properties of the element are read on the first measure and cached until {@link #reset()} is called. Texts
+ * are measured with a canvas when the browser supports it, otherwise with a hidden element reused between measures.
+ */
+class TextMeasurer {
+    private static final String[] FONT_STYLES = {"font-size", "font-style", "font-weight", "font-family",
+            "line-height", "text-transform", "letter-spacing"};
+
+    private static JavaScriptObject canvasContext;
+    private static Element measureElement;
+
+    private final GQuery element;
+
+    private String font;
+    private String styleBlock;
+    private String textTransform;
+    private double letterSpacing;
+
+    TextMeasurer(GQuery element) {
+        this.element = element;
+    }
+
+    /**
+     * Forget the font properties of the element, they will be read again on the next measure.
+     */
+    void reset() {
+        font = null;
+        styleBlock = null;
+    }
+
+    int measure(String text) {
+        if (font == null) {
+            readFontStyles();
+        }
+
+        if ("uppercase".equals(textTransform)) {
+            text = text.toUpperCase();
+        } else if ("lowercase".equals(textTransform)) {
+            text = text.toLowerCase();
+        }
+
+        if (canvasContext == null) {
+            canvasContext = createCanvasContext();
+        }
+
+        if (canvasContext != null) {
+            double width = measureText(canvasContext, font, text) + letterSpacing * text.length();
+            return (int) Math.ceil(width);
+        }
+
+        return measureWithElement(text);
+    }
+
+    private int measureWithElement(String text) {
+        if (measureElement == null) {
+            measureElement = Document.get().createDivElement();
+            Document.get().getBody().appendChild(measureElement);
+        }
+
+        measureElement.setAttribute("style", styleBlock);
+        measureElement.setInnerText(text);
+
+        return measureElement.getOffsetWidth();
+    }
+
+    private void readFontStyles() {
+        // placed above the page rather than on a side to not extend the scrollable area of rtl pages
+        StringBuilder styles = new StringBuilder("position:absolute; left: 0; top: -1000px; visibility:hidden; "
+                + "white-space:pre;");
+
+        for (String style : FONT_STYLES) {
+            styles.append(style).append(':').append(element.css(style)).append(";");
+        }
+        styleBlock = styles.toString();
+
+        font = element.css("font-style") + " " + element.css("font-weight") + " " + element.css("font-size") + " "
+                + element.css("font-family");
+        textTransform = element.css("text-transform");
+
+        String spacing = element.css("letter-spacing");
+        letterSpacing = spacing != null && spacing.endsWith("px")
+                ? Double.parseDouble(spacing.substring(0, spacing.length() - 2)) : 0;
+    }
+
+    private static native JavaScriptObject createCanvasContext() /*-{
+        var canvas = $doc.createElement('canvas');
+        return canvas.getContext ? canvas.getContext('2d') : null;
+    }-*/;
+
+    private static native double measureText(JavaScriptObject context, String font, String text) /*-{
+        context.font = font;
+        return context.measureText(text).width;
+    }-*/;
+}
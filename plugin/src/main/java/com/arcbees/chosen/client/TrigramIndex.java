@@ -0,0 +1,184 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+
+/**
+ * Inverted index of the sequences of three characters (trigrams) found in the search text of the options.
+ * <p/>
+ * An option containing a query contains every trigram of the query, so the options found in the posting lists of all
+ * the trigrams of the query are the only ones that can match it. They still have to be verified: the trigrams can be
+ * found at unrelated positions.
+ */
+class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private static class Postings {
+        // array indexes of the options containing the trigram, in ascending order
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int arrayIndex) {
+            if (size > 0 && items[size - 1] == arrayIndex) {
+                // the trigram appears several times in the option
+                return;
+            }
+
+            if (size == items.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(items, 0, grown, 0, size);
+                items = grown;
+            }
+            items[size++] = arrayIndex;
+        }
+    }
+
+    private final Map<String, Postings> postings;
+    private final int[] marks;
+    private final int[] marked;
+
+    private int stamp;
+    private int markedCount;
+
+    TrigramIndex(List<SelectItem> selectItems) {
+        marks = new int[selectItems.size()];
+        marked = new int[selectItems.size()];
+        postings = new HashMap<String, Postings>();
+
+        for (SelectItem item : selectItems) {
+            if (item.isGroup() || item.isDisabled() || item.isEmpty()) {
+                continue;
+            }
+
+            String text = ((OptionItem) item).getSearchText();
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                String gram = text.substring(i, i + GRAM_LENGTH);
+
+                Postings gramPostings = postings.get(gram);
+                if (gramPostings == null) {
+                    gramPostings = new Postings();
+                    postings.put(gram, gramPostings);
+                }
+                gramPostings.add(item.getArrayIndex());
+            }
+        }
+    }
+
+    /**
+     * Create an index sharing the posting lists of {@code index}, built for another copy of the same options, with
+     * its own marks.
+     */
+    TrigramIndex(TrigramIndex index) {
+        postings = index.postings;
+        marks = new int[index.marks.length];
+        marked = new int[index.marks.length];
+    }
+
+    /**
+     * Mark the options that contain every trigram of {@code query}, see {@link #isMarked(int)}. The query must have
+     * at least {@value #GRAM_LENGTH} characters. Return the number of marked options, see {@link #getMarked(int)}.
+     */
+    int mark(String query) {
+        stamp++;
+        markedCount = 0;
+
+        List<Postings> lists = new ArrayList<Postings>();
+        Postings smallest = null;
+
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Postings gramPostings = postings.get(query.substring(i, i + GRAM_LENGTH));
+            if (gramPostings == null) {
+                // no option contains this trigram
+                return 0;
+            }
+
+            lists.add(gramPostings);
+            if (smallest == null || gramPostings.size < smallest.size) {
+                smallest = gramPostings;
+            }
+        }
+
+        // intersect the other lists with the smallest one
+        int[] positions = new int[lists.size()];
+        for (int i = 0; i < smallest.size; i++) {
+            int arrayIndex = smallest.items[i];
+            boolean inAll = true;
+
+            for (int l = 0; l < lists.size() && inAll; l++) {
+                Postings list = lists.get(l);
+                if (list == smallest) {
+                    continue;
+                }
+
+                // both lists are sorted, the position in the other list only moves forward
+                int position = lowerBound(list, positions[l], arrayIndex);
+                positions[l] = position;
+
+                inAll = position < list.size && list.items[position] == arrayIndex;
+            }
+
+            if (inAll) {
+                marks[arrayIndex] = stamp;
+                marked[markedCount++] = arrayIndex;
+            }
+        }
+
+        return markedCount;
+    }
+
+    /**
+     * Return the array index of the option at {@code position} among the options marked by the last call to
+     * {@link #mark(String)}, in ascending order.
+     */
+    int getMarked(int position) {
+        return marked[position];
+    }
+
+    /**
+     * Return the first position from {@code from} in the list where the item is greater than or equal to
+     * {@code arrayIndex}, found by binary search since the other lists are usually much longer than the smallest one.
+     */
+    private int lowerBound(Postings list, int from, int arrayIndex) {
+        int low = from;
+        int high = list.size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list.items[middle] < arrayIndex) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Return true if the option can contain the query given to the last call to {@link #mark(String)}.
+     */
+    boolean isMarked(int arrayIndex) {
+        return marks[arrayIndex] == stamp;
+    }
+}
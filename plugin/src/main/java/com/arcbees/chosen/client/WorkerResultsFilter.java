@@ -0,0 +1,326 @@
+/**
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.List;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayInteger;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * Filter matching the options in a Web Worker, so that searching in a very large list doesn't block the page. See
+ * {@link ChosenOptions#setWorkerFilterThreshold(int)}.
+ * <p/>
+ * The search texts of the options are sent to the worker once per list of options. Each search then sends the query
+ * to the worker, which answers with the array indexes of the matching options and the offsets of the matches. The
+ * answers of a search superseded by a newer one are dropped. When a query extends the previous one, the worker only
+ * tests the options that matched the previous query. The worker is terminated when the component is destroyed.
+ * <p/>
+ * The searches without text, the fuzzy searches, the lists below the threshold and the browsers where the worker
+ * cannot be started are handled by a {@link ClientResultsFilter}.
+ */
+class WorkerResultsFilter implements ResultsFilter {
+    private static final String WORKER_SOURCE = ""
+            + "var texts = [], starts = [], lastQuery = null, lastContains = false, lastMatches = null;\n"
+            + "function matchOption(i, query, contains) {\n"
+            + "  var text = texts[i];\n"
+            + "  if (text === null) return -1;\n"
+            + "  if (contains) return text.indexOf(query);\n"
+            + "  var wordStarts = starts[i];\n"
+            + "  for (var w = 0; w < wordStarts.length; w++) {\n"
+            + "    if (text.substr(wordStarts[w], query.length) === query) return wordStarts[w];\n"
+            + "  }\n"
+            + "  return -1;\n"
+            + "}\n"
+            + "onmessage = function (e) {\n"
+            + "  var data = e.data;\n"
+            + "  if (data.texts) {\n"
+            + "    texts = data.texts; starts = data.starts; lastQuery = null; lastMatches = null;\n"
+            + "    return;\n"
+            + "  }\n"
+            + "  var query = data.query, contains = data.contains;\n"
+            + "  var reuse = lastMatches !== null && lastContains === contains && query.indexOf(lastQuery) === 0;\n"
+            + "  var count = reuse ? lastMatches.length : texts.length;\n"
+            + "  var matches = new Int32Array(count), offsets = new Int32Array(count), size = 0;\n"
+            + "  for (var c = 0; c < count; c++) {\n"
+            + "    var i = reuse ? lastMatches[c] : c;\n"
+            + "    var offset = matchOption(i, query, contains);\n"
+            + "    if (offset !== -1) { matches[size] = i; offsets[size] = offset; size++; }\n"
+            + "  }\n"
+            + "  lastQuery = query; lastContains = contains; lastMatches = matches.subarray(0, size);\n"
+            + "  var sent = matches.slice(0, size), sentOffsets = offsets.slice(0, size);\n"
+            + "  postMessage({id: data.id, matches: sent, offsets: sentOffsets}, [sent.buffer, sentOffsets.buffer]);\n"
+            + "};\n";
+
+    private final ClientResultsFilter fallbackFilter = new ClientResultsFilter();
+
+    private JavaScriptObject worker;
+    private String workerUrl;
+    private boolean workerFailed;
+    private int requestId;
+    private ChosenImpl chosen;
+    private String searchText;
+    private String query;
+
+    private List<SelectItem> workerItems;
+    private int[] groups;
+    // options activated by the last results received, null if they are unknown
+    private int[] appliedMatches;
+    private int appliedRevision;
+
+    @Override
+    public void filter(String searchText, ChosenImpl chosen, boolean isShowing) {
+        // a newer search supersedes the one sent to the worker
+        requestId++;
+
+        String query = SelectParser.toSearchText(searchText);
+        List<SelectItem> selectItems = chosen.getSelectItems();
+
+        if (query.isEmpty() || chosen.getOptions().isFuzzySearch()
+                || selectItems.size() <= chosen.getOptions().getWorkerFilterThreshold() || !startWorker()) {
+            appliedMatches = null;
+            fallbackFilter.filter(searchText, chosen, isShowing);
+            return;
+        }
+
+        if (selectItems != workerItems) {
+            sendItems(selectItems);
+        }
+
+        this.chosen = chosen;
+        this.searchText = searchText;
+        this.query = query;
+
+        postQuery(worker, requestId, query, chosen.getOptions().isSearchContains());
+    }
+
+    /**
+     * Stop the worker and release the url of its source. A search started afterwards starts a new worker.
+     */
+    void release() {
+        requestId++;
+
+        if (worker != null) {
+            terminate(worker, workerUrl);
+        }
+
+        worker = null;
+        workerUrl = null;
+        workerItems = null;
+        appliedMatches = null;
+        chosen = null;
+    }
+
+    private void activateMatches(JsArrayInteger matches, JsArrayInteger offsets) {
+        List<SelectItem> selectItems = chosen.getSelectItems();
+
+        for (int groupIndex : groups) {
+            chosen.resultDisplayGroup(selectItems.get(groupIndex), false);
+        }
+
+        // only the options displayed by the last results have to be hidden, unless the component modified them
+        if (appliedMatches != null && appliedRevision == chosen.getResultsRevision()) {
+            for (int arrayIndex : appliedMatches) {
+                deactivate(selectItems.get(arrayIndex));
+            }
+        } else {
+            for (SelectItem item : selectItems) {
+                deactivate(item);
+            }
+        }
+
+        int[] activated = new int[matches.length()];
+        int results = 0;
+
+        for (int i = 0; i < matches.length(); i++) {
+            OptionItem option = (OptionItem) selectItems.get(matches.get(i));
+            if (chosen.isMultiple() && option.isSelected()) {
+                continue;
+            }
+
+            activated[results++] = option.getArrayIndex();
+            chosen.resultActivate(option, offsets.get(i), query.length());
+
+            if (option.getGroupArrayIndex() != -1) {
+                chosen.resultDisplayGroup(selectItems.get(option.getGroupArrayIndex()), true);
+            }
+        }
+
+        // the default filter must not rely on the results of its previous searches anymore
+        chosen.invalidateResults();
+
+        appliedMatches = new int[results];
+        System.arraycopy(activated, 0, appliedMatches, 0, results);
+        appliedRevision = chosen.getResultsRevision();
+
+        if (results < 1) {
+            chosen.noResults(searchText);
+        } else {
+            chosen.winnowResultsSetHighlight();
+        }
+
+        if (chosen.resultsShowing) {
+            chosen.positionDropdownResult();
+        }
+    }
+
+    private void deactivate(SelectItem item) {
+        if (item.isGroup() || item.isDisabled() || item.isEmpty()) {
+            return;
+        }
+
+        OptionItem option = (OptionItem) item;
+        if (!(chosen.isMultiple() && option.isSelected())) {
+            chosen.resultDeactivate(option);
+        }
+    }
+
+    /**
+     * Called by the worker with the results of the request {@code id}.
+     */
+    private void onResults(int id, JsArrayInteger matches, JsArrayInteger offsets) {
+        // the results of a superseded search, or of a list of options that has been replaced since
+        if (id != requestId || chosen == null || chosen.getSelectItems() != workerItems) {
+            return;
+        }
+
+        activateMatches(matches, offsets);
+    }
+
+    private void onWorkerError() {
+        if (worker != null) {
+            terminate(worker, workerUrl);
+        }
+
+        worker = null;
+        workerUrl = null;
+        workerFailed = true;
+        workerItems = null;
+        appliedMatches = null;
+
+        // search again without the worker
+        if (chosen != null) {
+            fallbackFilter.filter(searchText, chosen, chosen.resultsShowing);
+        }
+    }
+
+    private void sendItems(List<SelectItem> selectItems) {
+        JsArrayString texts = JsArrayString.createArray().cast();
+        JsArray<JsArrayInteger> starts = JsArray.createArray().cast();
+
+        int groupsCount = 0;
+        int[] groupIndexes = new int[selectItems.size()];
+
+        for (SelectItem item : selectItems) {
+            if (item.isGroup() && !item.isDisabled()) {
+                groupIndexes[groupsCount++] = item.getArrayIndex();
+            }
+
+            if (item.isGroup() || item.isDisabled() || item.isEmpty()) {
+                // never matched
+                texts.push(null);
+                starts.push(JsArrayInteger.createArray().<JsArrayInteger>cast());
+                continue;
+            }
+
+            OptionItem option = (OptionItem) item;
+            JsArrayInteger wordStarts = JsArrayInteger.createArray().cast();
+            for (int wordStart : option.getWordStarts()) {
+                wordStarts.push(wordStart);
+            }
+
+            texts.push(option.getSearchText());
+            starts.push(wordStarts);
+        }
+
+        groups = new int[groupsCount];
+        System.arraycopy(groupIndexes, 0, groups, 0, groupsCount);
+
+        postItems(worker, texts, starts);
+
+        workerItems = selectItems;
+        appliedMatches = null;
+    }
+
+    private boolean startWorker() {
+        if (worker == null && !workerFailed) {
+            workerUrl = createWorkerUrl(WORKER_SOURCE);
+            worker = workerUrl == null ? null : createWorker(workerUrl);
+            workerFailed = worker == null;
+
+            if (worker != null) {
+                listen(worker);
+            } else if (workerUrl != null) {
+                revokeUrl(workerUrl);
+                workerUrl = null;
+            }
+        }
+
+        return worker != null;
+    }
+
+    private static native JavaScriptObject createWorker(String url) /*-{
+        try {
+            return new $wnd.Worker(url);
+        } catch (e) {
+            // the content security policy of the page can forbid the workers created from a blob
+            return null;
+        }
+    }-*/;
+
+    private static native String createWorkerUrl(String source) /*-{
+        if (!$wnd.Worker || !$wnd.Blob || !$wnd.URL || !$wnd.Int32Array || !$wnd.Int32Array.prototype.slice) {
+            return null;
+        }
+
+        return $wnd.URL.createObjectURL(new $wnd.Blob([source], {type: 'application/javascript'}));
+    }-*/;
+
+    private native void listen(JavaScriptObject worker) /*-{
+        var filter = this;
+        worker.onmessage = $entry(function (e) {
+            filter.@com.arcbees.chosen.client.WorkerResultsFilter::onResults(ILcom/google/gwt/core/client/JsArrayInteger;Lcom/google/gwt/core/client/JsArrayInteger;)(e.data.id, e.data.matches, e.data.offsets);
+        });
+        worker.onerror = $entry(function () {
+            filter.@com.arcbees.chosen.client.WorkerResultsFilter::onWorkerError()();
+        });
+    }-*/;
+
+    private static native void postItems(JavaScriptObject worker, JsArrayString texts,
+            JsArray<JsArrayInteger> starts) /*-{
+        worker.postMessage({texts: texts, starts: starts});
+    }-*/;
+
+    private static native void postQuery(JavaScriptObject worker, int id, String query, boolean contains) /*-{
+        worker.postMessage({id: id, query: query, contains: contains});
+    }-*/;
+
+    private static native void revokeUrl(String url) /*-{
+        $wnd.URL.revokeObjectURL(url);
+    }-*/;
+
+    private static native void terminate(JavaScriptObject worker, String url) /*-{
+        worker.onmessage = null;
+        worker.onerror = null;
+        worker.terminate();
+        $wnd.URL.revokeObjectURL(url);
+    }-*/;
+}
@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.arcbees.chosen.client.ChosenImpl;
 import com.arcbees.chosen.client.ChosenOptions;
+import com.arcbees.chosen.client.OptionSource;
 import com.arcbees.chosen.client.event.ChosenChangeEvent;
 import com.arcbees.chosen.client.event.ChosenChangeEvent.ChosenChangeHandler;
 import com.arcbees.chosen.client.event.HasAllChosenHandlers;
@@ -36,6 +37,8 @@ import com.arcbees.chosen.client.event.UpdatedEvent.UpdatedHandler;
 import com.arcbees.chosen.client.resources.Resources;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.NodeList;
@@ -63,6 +66,10 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
     private EventBus chznHandlerManager;
     private ChosenOptions options;
     private boolean visible = true;
+    private int batchDepth;
+    private boolean updatePending;
+    private boolean updateScheduled;
+    private HandlerRegistration readyRegistration;
 
     /**
      * Creates an empty chosen component in single selection mode.
@@ -350,6 +357,28 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
         options.setDisableSearchThreshold(disableSearchThreshold);
     }
 
+    public int getIncrementalFilterThreshold() {
+        return options.getIncrementalFilterThreshold();
+    }
+
+    /**
+     * See {@link ChosenOptions#setIncrementalFilterThreshold(int)}.
+     */
+    public void setIncrementalFilterThreshold(int incrementalFilterThreshold) {
+        options.setIncrementalFilterThreshold(incrementalFilterThreshold);
+    }
+
+    public String getLoadingText() {
+        return options.getLoadingText();
+    }
+
+    /**
+     * See {@link ChosenOptions#setLoadingText(String)}.
+     */
+    public void setLoadingText(String loadingText) {
+        options.setLoadingText(loadingText);
+    }
+
     public int getMaxSelectedOptions() {
         return options.getMaxSelectedOptions();
     }
@@ -366,6 +395,17 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
         options.setNoResultsText(noResultsText);
     }
 
+    public OptionSource getOptionSource() {
+        return options.getOptionSource();
+    }
+
+    /**
+     * See {@link ChosenOptions#setOptionSource(OptionSource)}.
+     */
+    public void setOptionSource(OptionSource optionSource) {
+        options.setOptionSource(optionSource);
+    }
+
     public String getPlaceholderText() {
         return options.getPlaceholderText();
     }
@@ -390,6 +430,61 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
         options.setPlaceholderTextSingle(placeholderTextSingle);
     }
 
+    public int getRankedResultsLimit() {
+        return options.getRankedResultsLimit();
+    }
+
+    /**
+     * See {@link ChosenOptions#setRankedResultsLimit(int)}.
+     */
+    public void setRankedResultsLimit(int rankedResultsLimit) {
+        options.setRankedResultsLimit(rankedResultsLimit);
+    }
+
+    public int getResultsCacheSize() {
+        return options.getResultsCacheSize();
+    }
+
+    /**
+     * See {@link ChosenOptions#setResultsCacheSize(int)}.
+     */
+    public void setResultsCacheSize(int resultsCacheSize) {
+        options.setResultsCacheSize(resultsCacheSize);
+    }
+
+    public int getResultsCacheTimeToLive() {
+        return options.getResultsCacheTimeToLive();
+    }
+
+    /**
+     * See {@link ChosenOptions#setResultsCacheTimeToLive(int)}.
+     */
+    public void setResultsCacheTimeToLive(int resultsCacheTimeToLive) {
+        options.setResultsCacheTimeToLive(resultsCacheTimeToLive);
+    }
+
+    public int getSearchDelay() {
+        return options.getSearchDelay();
+    }
+
+    /**
+     * See {@link ChosenOptions#setSearchDelay(int)}.
+     */
+    public void setSearchDelay(int searchDelay) {
+        options.setSearchDelay(searchDelay);
+    }
+
+    public int getWorkerFilterThreshold() {
+        return options.getWorkerFilterThreshold();
+    }
+
+    /**
+     * See {@link ChosenOptions#setWorkerFilterThreshold(int)}.
+     */
+    public void setWorkerFilterThreshold(int workerFilterThreshold) {
+        options.setWorkerFilterThreshold(workerFilterThreshold);
+    }
+
     /**
      * Return the value of the first selected option if any. Returns false otherwise.
      * In case of multiple ChosenListBox, please use {@link #getValues()} instead.
@@ -409,9 +504,14 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
      * @return the values of all selected options in an array
      */
     public String[] getValues() {
+        if (batchDepth == 0) {
+            flushUpdate();
+        }
+
         ChosenImpl impl = getChosenImpl();
 
-        if (impl != null) {
+        // during a batch, the component isn't updated yet: read the values from the select element
+        if (impl != null && !updatePending) {
             List<String> selectedValues = impl.getSelectedValues();
             return selectedValues.toArray(new String[selectedValues.size()]);
         } else {
@@ -623,6 +723,61 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
         options.setSingleBackstrokeDelete(singleBackstrokeDelete);
     }
 
+    public boolean isVirtualScroll() {
+        return options.isVirtualScroll();
+    }
+
+    /**
+     * See {@link ChosenOptions#setVirtualScroll(boolean)}.
+     */
+    public void setVirtualScroll(boolean virtualScroll) {
+        options.setVirtualScroll(virtualScroll);
+    }
+
+    public boolean isFuzzySearch() {
+        return options.isFuzzySearch();
+    }
+
+    /**
+     * See {@link ChosenOptions#setFuzzySearch(boolean)}.
+     */
+    public void setFuzzySearch(boolean fuzzySearch) {
+        options.setFuzzySearch(fuzzySearch);
+    }
+
+    public boolean isLazyResults() {
+        return options.isLazyResults();
+    }
+
+    /**
+     * See {@link ChosenOptions#setLazyResults(boolean)}.
+     */
+    public void setLazyResults(boolean lazyResults) {
+        options.setLazyResults(lazyResults);
+    }
+
+    public boolean isUpgradeOnDemand() {
+        return options.isUpgradeOnDemand();
+    }
+
+    /**
+     * See {@link ChosenOptions#setUpgradeOnDemand(boolean)}.
+     */
+    public void setUpgradeOnDemand(boolean upgradeOnDemand) {
+        options.setUpgradeOnDemand(upgradeOnDemand);
+    }
+
+    public boolean isResultsOnDemand() {
+        return options.isResultsOnDemand();
+    }
+
+    /**
+     * See {@link ChosenOptions#setResultsOnDemand(boolean)}.
+     */
+    public void setResultsOnDemand(boolean resultsOnDemand) {
+        options.setResultsOnDemand(resultsOnDemand);
+    }
+
     public void removeGroup(int index) {
         $(OPTGROUP_TAG, getElement()).eq(index).remove();
         update();
@@ -702,6 +857,12 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
 
         GQuery chosenElement = getChosenElement();
 
+        if (chosenElement.isEmpty()) {
+            // the select element hasn't been replaced yet
+            super.setVisible(visible);
+            return;
+        }
+
         if (visible) {
             chosenElement.show();
         } else {
@@ -721,9 +882,67 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
     /**
      * Use this method to update the chosen list box (i.e. after insertion or
      * removal of options)
+     * <p/>
+     * The update is deferred until the end of the current event loop so that several consecutive calls cause only one
+     * update. Inside a batch (see {@link #beginUpdate()}), the update is deferred until the end of the batch.
      */
     public void update() {
-        ensureChosenHandlers().fireEvent(new UpdatedEvent());
+        updatePending = true;
+
+        if (batchDepth == 0 && !updateScheduled) {
+            updateScheduled = true;
+            Scheduler.get().scheduleFinally(new ScheduledCommand() {
+                @Override
+                public void execute() {
+                    updateScheduled = false;
+                    flushUpdate();
+                }
+            });
+        }
+    }
+
+    /**
+     * Start a batch of modifications: the updates requested until the matching call to {@link #endUpdate()} are
+     * merged in a single update performed at the end of the batch. Batches can be nested.
+     */
+    public void beginUpdate() {
+        batchDepth++;
+    }
+
+    /**
+     * End a batch of modifications started with {@link #beginUpdate()}. The component is updated immediately if an
+     * update was requested during the batch.
+     */
+    public void endUpdate() {
+        if (batchDepth > 0) {
+            batchDepth--;
+        }
+
+        if (batchDepth == 0) {
+            flushUpdate();
+        }
+    }
+
+    /**
+     * Run the modifications of <code>command</code> in a batch, see {@link #beginUpdate()}.
+     */
+    public void runBatched(Runnable command) {
+        beginUpdate();
+        try {
+            command.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Perform immediately the pending update if any.
+     */
+    public void flushUpdate() {
+        if (updatePending) {
+            updatePending = false;
+            ensureChosenHandlers().fireEvent(new UpdatedEvent());
+        }
     }
 
     protected final <H extends EventHandler> HandlerRegistration addChosenHandler(
@@ -753,6 +972,17 @@ public class ChosenListBox extends ListBox implements HasAllChosenHandlers {
     @Override
     protected void onLoad() {
         super.onLoad();
+
+        if (options.isUpgradeOnDemand() && readyRegistration == null) {
+            // the component may be created later, hide it then if needed
+            readyRegistration = addReadyHandler(new ReadyHandler() {
+                @Override
+                public void onReady() {
+                    setVisible(visible);
+                }
+            });
+        }
+
         $(getElement()).as(Chosen).chosen(options, ensureChosenHandlers());
         setVisible(visible);
     }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FuzzyMatcherTest {
+    @Test
+    public void getMaxErrors_dependsOnQueryLength() {
+        assertThat(FuzzyMatcher.getMaxErrors("")).isEqualTo(0);
+        assertThat(FuzzyMatcher.getMaxErrors("ch")).isEqualTo(0);
+        assertThat(FuzzyMatcher.getMaxErrors("cho")).isEqualTo(1);
+        assertThat(FuzzyMatcher.getMaxErrors("chose")).isEqualTo(1);
+        assertThat(FuzzyMatcher.getMaxErrors("chosen")).isEqualTo(2);
+    }
+
+    @Test
+    public void match_noError() {
+        FuzzyMatcher matcher = new FuzzyMatcher("chosen", 2);
+
+        assertThat(matcher.match("the chosen one")).isEqualTo(4);
+        assertThat(matcher.getMatchLength()).isEqualTo(6);
+    }
+
+    @Test
+    public void match_oneSubstitution() {
+        FuzzyMatcher matcher = new FuzzyMatcher("chosen", 1);
+
+        assertThat(matcher.match("chasen")).isEqualTo(0);
+        assertThat(matcher.getMatchLength()).isEqualTo(6);
+    }
+
+    @Test
+    public void match_oneInsertion() {
+        FuzzyMatcher matcher = new FuzzyMatcher("chosen", 1);
+
+        assertThat(matcher.match("the choosen")).isEqualTo(4);
+        assertThat(matcher.getMatchLength()).isEqualTo(7);
+    }
+
+    @Test
+    public void match_oneDeletion() {
+        FuzzyMatcher matcher = new FuzzyMatcher("chosen", 1);
+
+        assertThat(matcher.match("a chsen")).isEqualTo(2);
+        assertThat(matcher.getMatchLength()).isEqualTo(5);
+    }
+
+    @Test
+    public void match_twoErrors() {
+        FuzzyMatcher matcher = new FuzzyMatcher("chosen", 2);
+
+        assertThat(matcher.match("a cohsen")).isEqualTo(2);
+        assertThat(matcher.getMatchLength()).isEqualTo(6);
+
+        assertThat(matcher.match("chsn")).isEqualTo(0);
+        assertThat(matcher.getMatchLength()).isEqualTo(4);
+    }
+
+    @Test
+    public void match_tooManyErrors() {
+        assertThat(new FuzzyMatcher("chosen", 0).match("chasen")).isEqualTo(-1);
+        assertThat(new FuzzyMatcher("chosen", 1).match("cohsen")).isEqualTo(-1);
+        assertThat(new FuzzyMatcher("chosen", 2).match("chxxxn")).isEqualTo(-1);
+    }
+
+    @Test
+    public void match_prefersFewestErrors() {
+        FuzzyMatcher matcher = new FuzzyMatcher("chosen", 1);
+
+        assertThat(matcher.match("chasen chosen")).isEqualTo(7);
+        assertThat(matcher.getMatchLength()).isEqualTo(6);
+    }
+
+    @Test
+    public void match_emptyQuery() {
+        FuzzyMatcher matcher = new FuzzyMatcher("", 1);
+
+        assertThat(matcher.match("chosen")).isEqualTo(0);
+        assertThat(matcher.getMatchLength()).isEqualTo(0);
+    }
+
+    @Test
+    public void match_longQuery_onlyExact() {
+        String query = "abcdefghijklmnopqrstuvwxyzabcdefg";
+        FuzzyMatcher matcher = new FuzzyMatcher(query, 2);
+
+        assertThat(matcher.getMaxErrors()).isEqualTo(0);
+        assertThat(matcher.match("abcdefghijklmnopqrstuvwxyzabcdefx")).isEqualTo(-1);
+        assertThat(matcher.match("-" + query)).isEqualTo(1);
+        assertThat(matcher.getMatchLength()).isEqualTo(query.length());
+    }
+}
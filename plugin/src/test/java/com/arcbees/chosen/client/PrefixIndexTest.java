@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.arcbees.chosen.client.TestItems.createItems;
+
+public class PrefixIndexTest {
+    @Test
+    public void mark_wordStarts() {
+        PrefixIndex index = new PrefixIndex(createItems("new york", "york", "berlin", "[beta] york"));
+
+        index.mark("york");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.getMatchStart(0)).isEqualTo(4);
+        assertThat(index.isMarked(1)).isTrue();
+        assertThat(index.getMatchStart(1)).isEqualTo(0);
+        assertThat(index.isMarked(2)).isFalse();
+        assertThat(index.isMarked(3)).isTrue();
+        assertThat(index.getMatchStart(3)).isEqualTo(7);
+    }
+
+    @Test
+    public void mark_afterBracket() {
+        PrefixIndex index = new PrefixIndex(createItems("[beta] york"));
+
+        index.mark("beta");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.getMatchStart(0)).isEqualTo(1);
+    }
+
+    @Test
+    public void mark_insideAWord_notMarked() {
+        PrefixIndex index = new PrefixIndex(createItems("berlin"));
+
+        index.mark("erl");
+
+        assertThat(index.isMarked(0)).isFalse();
+    }
+
+    @Test
+    public void mark_severalWords_earliestStart() {
+        // the later word sorts first in the index
+        PrefixIndex index = new PrefixIndex(createItems("york new york", "new york yorkshire"));
+
+        index.mark("york");
+
+        assertThat(index.getMatchStart(0)).isEqualTo(0);
+        assertThat(index.getMatchStart(1)).isEqualTo(4);
+    }
+
+    @Test
+    public void mark_returnsEachMarkedOptionOnce() {
+        PrefixIndex index = new PrefixIndex(createItems("york new york", "berlin", "new york"));
+
+        assertThat(index.mark("york")).isEqualTo(2);
+        assertThat(index.getMarked(0) + index.getMarked(1)).isEqualTo(2);
+        assertThat(index.getMarked(0) * index.getMarked(1)).isEqualTo(0);
+
+        assertThat(index.mark("paris")).isEqualTo(0);
+    }
+
+    @Test
+    public void mark_emptyQuery_marksEveryOption() {
+        PrefixIndex index = new PrefixIndex(createItems("new york", "berlin"));
+
+        index.mark("");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.getMatchStart(0)).isEqualTo(0);
+        assertThat(index.isMarked(1)).isTrue();
+        assertThat(index.getMatchStart(1)).isEqualTo(0);
+    }
+
+    @Test
+    public void mark_singleToken() {
+        PrefixIndex index = new PrefixIndex(createItems("paris"));
+
+        index.mark("paris");
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.getMatchStart(0)).isEqualTo(0);
+
+        index.mark("parisx");
+        assertThat(index.isMarked(0)).isFalse();
+
+        // before and after the only token of the index
+        index.mark("a");
+        assertThat(index.isMarked(0)).isFalse();
+
+        index.mark("z");
+        assertThat(index.isMarked(0)).isFalse();
+    }
+
+    @Test
+    public void mark_disabledOption_notIndexed() {
+        List<SelectItem> items = createItems("paris", "parma");
+        ((OptionItem) items.get(1)).setDisabled(true);
+        PrefixIndex index = new PrefixIndex(items);
+
+        index.mark("par");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.isMarked(1)).isFalse();
+    }
+
+    @Test
+    public void copy_hasItsOwnMarks() {
+        PrefixIndex index = new PrefixIndex(createItems("paris", "berlin"));
+        PrefixIndex copy = new PrefixIndex(index);
+
+        index.mark("par");
+        copy.mark("ber");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.isMarked(1)).isFalse();
+        assertThat(copy.isMarked(0)).isFalse();
+        assertThat(copy.isMarked(1)).isTrue();
+    }
+}
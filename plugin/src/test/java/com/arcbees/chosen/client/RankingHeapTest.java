@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.arcbees.chosen.client.TestItems.createOption;
+
+public class RankingHeapTest {
+    @Test
+    public void offer_keepsTheBestOptionsInOrder() {
+        RankingHeap heap = new RankingHeap(3);
+
+        heap.offer(createOption(0, "berlin"), 1, 0);
+        heap.offer(createOption(1, "bern"), 4, 0);
+        heap.offer(createOption(2, "bergen"), 2, 0);
+        heap.offer(createOption(3, "bergamo"), 3, 0);
+        heap.offer(createOption(4, "bermuda"), 1, 0);
+
+        assertThat(drain(heap)).isEqualTo("[bern, bergamo, bergen]");
+    }
+
+    @Test
+    public void offer_tiesOrderedByLengthThenPosition() {
+        RankingHeap heap = new RankingHeap(4);
+
+        heap.offer(createOption(0, "paris texas"), 3, 0);
+        heap.offer(createOption(1, "parma"), 3, 0);
+        heap.offer(createOption(2, "paris"), 3, 0);
+        heap.offer(createOption(3, "parisian"), 3, 0);
+        heap.offer(createOption(4, "parka"), 3, 0);
+
+        assertThat(drain(heap)).isEqualTo("[parma, paris, parka, parisian]");
+    }
+
+    @Test
+    public void offer_capacityLargerThanTheMatches() {
+        RankingHeap heap = new RankingHeap(10);
+
+        heap.offer(createOption(0, "new york"), 2, 4);
+        heap.offer(createOption(1, "york"), 4, 0);
+
+        assertThat(heap.size()).isEqualTo(2);
+        assertThat(heap.getWorstMatchStart()).isEqualTo(4);
+        assertThat(drain(heap)).isEqualTo("[york, new york]");
+        assertThat(heap.getWorst() == null).isTrue();
+    }
+
+    @Test
+    public void offer_noCapacity_keepsNothing() {
+        RankingHeap heap = new RankingHeap(0);
+
+        heap.offer(createOption(0, "york"), 4, 0);
+
+        assertThat(heap.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void clear_forgetsTheOptions() {
+        RankingHeap heap = new RankingHeap(2);
+        heap.offer(createOption(0, "york"), 4, 0);
+
+        heap.clear();
+        heap.offer(createOption(1, "new york"), 2, 4);
+
+        assertThat(drain(heap)).isEqualTo("[new york]");
+    }
+
+    /**
+     * Empty the heap and return the texts of its options, best first.
+     */
+    private String drain(RankingHeap heap) {
+        List<String> texts = new ArrayList<String>();
+        while (heap.size() > 0) {
+            OptionItem worst = heap.getWorst();
+            texts.add(0, worst.getText());
+            heap.removeWorst();
+        }
+
+        return texts.toString();
+    }
+}
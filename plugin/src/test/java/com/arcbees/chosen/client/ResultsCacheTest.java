@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arcbees.chosen.client.SelectParser.GroupItem;
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.arcbees.chosen.client.TestItems.createGroup;
+import static com.arcbees.chosen.client.TestItems.createItems;
+import static com.arcbees.chosen.client.TestItems.createOption;
+
+public class ResultsCacheTest {
+    private static class TestFilter extends AsyncResultsFilter {
+        @Override
+        protected void query(String searchText, int requestToken, Callback callback) {
+        }
+
+        @Override
+        protected boolean matches(OptionItem item, String searchText, boolean searchContains) {
+            String text = item.getText();
+            return searchContains ? text.contains(searchText) : text.startsWith(searchText);
+        }
+    }
+
+    private static class TestCache extends ResultsCache {
+        private double time;
+
+        TestCache(int maxSize, int timeToLive) {
+            super(new TestFilter(), maxSize, timeToLive);
+        }
+
+        @Override
+        double currentTime() {
+            return time;
+        }
+    }
+
+    @Test
+    public void put_evictsTheLeastRecentlyUsedEntry() {
+        TestCache cache = new TestCache(2, 0);
+        ResultsCache.Entry paris = createEntry(false, "paris");
+        ResultsCache.Entry berlin = createEntry(false, "berlin");
+        ResultsCache.Entry rome = createEntry(false, "rome");
+
+        cache.put("p", paris);
+        cache.put("b", berlin);
+        cache.get("p", false);
+        cache.put("r", rome);
+
+        assertThat(cache.get("p", false) == paris).isTrue();
+        assertThat(cache.get("b", false) == null).isTrue();
+        assertThat(cache.get("r", false) == rome).isTrue();
+    }
+
+    @Test
+    public void get_expiredEntry_returnsNull() {
+        TestCache cache = new TestCache(10, 100);
+        ResultsCache.Entry paris = createEntry(false, "paris");
+
+        cache.put("p", paris);
+
+        cache.time = 100;
+        assertThat(cache.get("p", false) == paris).isTrue();
+
+        cache.time = 101;
+        assertThat(cache.get("p", false) == null).isTrue();
+
+        // the expired entry is removed
+        cache.time = 50;
+        assertThat(cache.get("p", false) == null).isTrue();
+    }
+
+    @Test
+    public void get_refinesACompletePrefixEntry() {
+        TestCache cache = new TestCache(10, 0);
+        cache.put("p", createEntry(true, "paris", "pasadena", "prague"));
+
+        ResultsCache.Entry entry = cache.get("pa", false);
+
+        assertThat(texts(entry)).isEqualTo("[paris, pasadena]");
+        // the refined entry is cached
+        assertThat(cache.get("pa", false) == entry).isTrue();
+    }
+
+    @Test
+    public void get_refinesWithTheSearchContainsOption() {
+        TestCache cache = new TestCache(10, 0);
+        cache.put("", createEntry(true, "paris", "berlin", "prague"));
+
+        assertThat(texts(cache.get("ra", true))).isEqualTo("[prague]");
+    }
+
+    @Test
+    public void get_incompletePrefixEntry_returnsNull() {
+        TestCache cache = new TestCache(10, 0);
+        cache.put("p", createEntry(false, "paris", "prague"));
+
+        assertThat(cache.get("pa", false) == null).isTrue();
+    }
+
+    @Test
+    public void get_refinedEntry_expiresWithItsPrefix() {
+        TestCache cache = new TestCache(10, 100);
+        cache.put("p", createEntry(true, "paris", "prague"));
+
+        cache.time = 80;
+        assertThat(texts(cache.get("pa", false))).isEqualTo("[paris]");
+
+        cache.time = 101;
+        assertThat(cache.get("pa", false) == null).isTrue();
+    }
+
+    @Test
+    public void get_remapsTheGroups() {
+        List<SelectItem> items = new ArrayList<SelectItem>();
+        items.add(createGroup(0, "europe"));
+        items.add(createOption(1, "berlin"));
+        items.add(createOption(2, "paris"));
+        items.add(createGroup(3, "america"));
+        items.add(createOption(4, "new york"));
+        items.add(createOption(5, "panama"));
+        items.add(createOption(6, "pasadena"));
+
+        TestCache cache = new TestCache(10, 0);
+        cache.put("", new ResultsCache.Entry(items, new int[] {-1, 0, 0, -1, 3, 3, -1}, true, 0));
+
+        ResultsCache.Entry entry = cache.get("pa", false);
+
+        assertThat(texts(entry)).isEqualTo("[europe, paris, america, panama, pasadena]");
+        assertThat(Arrays.toString(Arrays.copyOf(entry.getGroups(), 5))).isEqualTo("[-1, 0, -1, 2, -1]");
+    }
+
+    @Test
+    public void get_refinedEntry_copiesTheItems() {
+        List<SelectItem> items = new ArrayList<SelectItem>();
+        items.add(createGroup(0, "europe"));
+        items.add(createOption(1, "paris"));
+
+        TestCache cache = new TestCache(10, 0);
+        cache.put("", new ResultsCache.Entry(items, new int[] {-1, 0}, true, 0));
+
+        ResultsCache.Entry entry = cache.get("p", false);
+
+        assertThat(entry.getItems().get(0) != items.get(0)).isTrue();
+        assertThat(entry.getItems().get(1) != items.get(1)).isTrue();
+        assertThat(((GroupItem) entry.getItems().get(0)).getLabel()).isEqualTo("europe");
+    }
+
+    private ResultsCache.Entry createEntry(boolean complete, String... texts) {
+        List<SelectItem> items = createItems(texts);
+        int[] groups = new int[items.size()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = -1;
+        }
+
+        return new ResultsCache.Entry(items, groups, complete, 0);
+    }
+
+    private String texts(ResultsCache.Entry entry) {
+        List<String> texts = new ArrayList<String>();
+        for (SelectItem item : entry.getItems()) {
+            texts.add(item.isGroup() ? ((GroupItem) item).getLabel() : ((OptionItem) item).getText());
+        }
+
+        return texts.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.arcbees.chosen.client.TestItems.createOption;
+
+public class SelectParserTest {
+    @Test
+    public void getSearchText_lowerCase() {
+        OptionItem option = createOption(0, "New York");
+
+        assertThat(option.getSearchText()).isEqualTo("new york");
+    }
+
+    @Test
+    public void getSearchText_html() {
+        OptionItem option = createOption(0, "York");
+        option.setHtml("<b>York</b>");
+
+        assertThat(option.getSearchText()).isEqualTo("<b>york</b>");
+    }
+
+    @Test
+    public void toSearchText_foldsAccents() {
+        assertThat(SelectParser.toSearchText("S\u00e3o Paulo")).isEqualTo("sao paulo");
+        assertThat(SelectParser.toSearchText("Z\u00fcrich")).isEqualTo("zurich");
+        assertThat(SelectParser.toSearchText("Montr\u00e9al")).isEqualTo("montreal");
+    }
+
+    @Test
+    public void toSearchText_keepsTheOffsets() {
+        // the dotted capital I is lower-cased to two characters, the search text keeps one
+        String searchText = SelectParser.toSearchText("\u0130stanbul");
+
+        assertThat(searchText).isEqualTo("istanbul");
+        assertThat(searchText.length()).isEqualTo("\u0130stanbul".length());
+    }
+
+    @Test
+    public void toSearchText_otherCharacters() {
+        assertThat(SelectParser.toSearchText("\u00c6sir [1]")).isEqualTo("\u00e6sir [1]");
+        assertThat(SelectParser.toSearchText("\u041c\u043e\u0441\u043a\u0432\u0430"))
+                .isEqualTo("\u043c\u043e\u0441\u043a\u0432\u0430");
+    }
+
+    @Test
+    public void getSearchText_foldsAccents() {
+        OptionItem option = createOption(0, "S\u00e3o Paulo");
+
+        assertThat(option.getSearchText()).isEqualTo("sao paulo");
+        assertThat(option.getWordStarts()[1]).isEqualTo(4);
+    }
+
+    @Test
+    public void getWordStarts_spaces() {
+        assertThat(wordStarts("new york city")).isEqualTo(Arrays.toString(new int[] {0, 4, 9}));
+    }
+
+    @Test
+    public void getWordStarts_brackets() {
+        assertThat(wordStarts("[beta] new york")).isEqualTo(Arrays.toString(new int[] {0, 1, 7, 11}));
+    }
+
+    @Test
+    public void getWordStarts_repeatedSeparators() {
+        assertThat(wordStarts("[beta] new  york")).isEqualTo(Arrays.toString(new int[] {0, 1, 7, 12}));
+        assertThat(wordStarts("new [[york")).isEqualTo(Arrays.toString(new int[] {0, 6}));
+    }
+
+    @Test
+    public void getWordStarts_trailingSeparator() {
+        assertThat(wordStarts("york ")).isEqualTo(Arrays.toString(new int[] {0}));
+    }
+
+    @Test
+    public void getWordStarts_singleWord() {
+        assertThat(wordStarts("york")).isEqualTo(Arrays.toString(new int[] {0}));
+        assertThat(wordStarts("")).isEqualTo(Arrays.toString(new int[] {0}));
+    }
+
+    @Test
+    public void getWordStarts_updatedWithTheText() {
+        OptionItem option = createOption(0, "york");
+        option.getWordStarts();
+
+        option.setText("new york");
+
+        assertThat(Arrays.toString(option.getWordStarts())).isEqualTo(Arrays.toString(new int[] {0, 4}));
+    }
+
+    private String wordStarts(String text) {
+        return Arrays.toString(createOption(0, text).getWordStarts());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arcbees.chosen.client.SelectParser.GroupItem;
+import com.arcbees.chosen.client.SelectParser.OptionItem;
+import com.arcbees.chosen.client.SelectParser.SelectItem;
+
+/**
+ * Build the items of the tests without parsing a select element.
+ */
+final class TestItems {
+    private TestItems() {
+    }
+
+    /**
+     * Return one option per text, with the array and options indexes of a select containing only these options.
+     */
+    static List<SelectItem> createItems(String... texts) {
+        List<SelectItem> items = new ArrayList<SelectItem>();
+        for (String text : texts) {
+            items.add(createOption(items.size(), text));
+        }
+
+        return items;
+    }
+
+    static GroupItem createGroup(int arrayIndex, String label) {
+        GroupItem group = new GroupItem();
+        group.arrayIndex = arrayIndex;
+        group.setLabel(label);
+        return group;
+    }
+
+    static OptionItem createOption(int arrayIndex, String text) {
+        OptionItem option = new OptionItem();
+        option.setArrayIndex(arrayIndex);
+        option.setOptionsIndex(arrayIndex);
+        option.setGroupArrayIndex(-1);
+        option.setText(text);
+        option.setValue(text);
+        return option;
+    }
+}
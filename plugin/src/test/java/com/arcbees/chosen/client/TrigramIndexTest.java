@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.arcbees.chosen.client;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.arcbees.chosen.client.TestItems.createItems;
+
+public class TrigramIndexTest {
+    @Test
+    public void mark_singleTrigram() {
+        TrigramIndex index = new TrigramIndex(createItems("berlin", "bern", "alberta", "paris"));
+
+        index.mark("ber");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.isMarked(1)).isTrue();
+        assertThat(index.isMarked(2)).isTrue();
+        assertThat(index.isMarked(3)).isFalse();
+    }
+
+    @Test
+    public void mark_intersectsTheTrigrams() {
+        TrigramIndex index = new TrigramIndex(createItems("berlin", "bern", "alberta", "merlin"));
+
+        index.mark("berl");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.isMarked(1)).isFalse();
+        assertThat(index.isMarked(2)).isFalse();
+        assertThat(index.isMarked(3)).isFalse();
+    }
+
+    @Test
+    public void mark_returnsTheIntersection() {
+        TrigramIndex index = new TrigramIndex(createItems("berlin", "bern", "alberta", "merlin"));
+
+        assertThat(index.mark("erli")).isEqualTo(2);
+        assertThat(index.getMarked(0)).isEqualTo(0);
+        assertThat(index.getMarked(1)).isEqualTo(3);
+
+        assertThat(index.mark("berx")).isEqualTo(0);
+    }
+
+    @Test
+    public void mark_missingTrigram_marksNothing() {
+        TrigramIndex index = new TrigramIndex(createItems("berlin", "bern"));
+
+        // no option contains "erx", even if they contain "ber"
+        index.mark("berx");
+
+        assertThat(index.isMarked(0)).isFalse();
+        assertThat(index.isMarked(1)).isFalse();
+    }
+
+    @Test
+    public void mark_forgetsThePreviousQuery() {
+        TrigramIndex index = new TrigramIndex(createItems("berlin", "paris"));
+
+        index.mark("ber");
+        index.mark("par");
+
+        assertThat(index.isMarked(0)).isFalse();
+        assertThat(index.isMarked(1)).isTrue();
+    }
+
+    @Test
+    public void mark_trigramsAtUnrelatedPositions() {
+        // both trigrams of the query are found, the option still has to be verified by the filter
+        TrigramIndex index = new TrigramIndex(createItems("abc bcd"));
+
+        index.mark("abcd");
+
+        assertThat(index.isMarked(0)).isTrue();
+    }
+
+    @Test
+    public void copy_hasItsOwnMarks() {
+        TrigramIndex index = new TrigramIndex(createItems("berlin", "paris"));
+        TrigramIndex copy = new TrigramIndex(index);
+
+        index.mark("ber");
+        copy.mark("par");
+
+        assertThat(index.isMarked(0)).isTrue();
+        assertThat(index.isMarked(1)).isFalse();
+        assertThat(copy.isMarked(0)).isFalse();
+        assertThat(copy.isMarked(1)).isTrue();
+    }
+}
@@ -16,11 +16,11 @@
 
 package com.arcbees.chosen.sample.client.application.chosensample;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import com.arcbees.chosen.client.ChosenImpl;
+import com.arcbees.chosen.client.AsyncResultsFilter;
 import com.arcbees.chosen.client.ChosenOptions;
-import com.arcbees.chosen.client.ResultsFilter;
 import com.arcbees.chosen.client.SelectParser;
 import com.arcbees.chosen.client.gwt.ChosenListBox;
 import com.google.gwt.core.client.GWT;
@@ -28,6 +28,7 @@ import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.event.logical.shared.AttachEvent;
 import com.google.gwt.uibinder.client.UiBinder;
 import com.google.gwt.uibinder.client.UiField;
+import com.google.gwt.user.client.Random;
 import com.google.gwt.user.client.ui.IsWidget;
 import com.google.gwt.user.client.ui.SimplePanel;
 import com.google.gwt.user.client.ui.Widget;
@@ -43,7 +44,7 @@ public class CustomFilteringView implements IsWidget {
 
     private final Widget widget;
 
-    public static class ServerSideSimulatorResultFilter implements ResultsFilter {
+    public static class ServerSideSimulatorResultFilter extends AsyncResultsFilter {
         private static final String[] NAMES = {
                 "Smith", "Johnson", "Williams", "Jones", "Brown", "Davis", "Miller", "Wilson", "Moore",
                 "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin", "Thompson", "Garcia",
@@ -69,43 +70,37 @@ public class CustomFilteringView implements IsWidget {
                 "Riley", "Armstrong", "Carpenter", "Weaver", "Greene", "Lawrence", "Elliott", "Chavez",
                 "Sims", "Austin", "Peters", "Kelley", "Franklin", "Lawson"};
 
-        private boolean initialized;
-
         @Override
-        public void filter(final String searchText, final ChosenImpl chosen, boolean isShowing) {
-            if (isShowing && initialized) {
-                return; // do nothing, keep the last results
-            }
-            initialized = true;
-
-            // filter the result asynchronously to simulate a call to a server
-            Scheduler.get().scheduleFixedPeriod(new Scheduler.RepeatingCommand() {
+        protected void query(final String searchText, int requestToken, final Callback callback) {
+            // filter the result asynchronously to simulate a call to a server, with a random latency
+            Scheduler.get().scheduleFixedDelay(new Scheduler.RepeatingCommand() {
                 @Override
                 public boolean execute() {
-                    List<SelectParser.SelectItem> selectItems = chosen.getSelectItems();
-                    selectItems.clear();
-                    int arrayIndex = 0;
+                    List<SelectParser.SelectItem> selectItems = new ArrayList<SelectParser.SelectItem>();
                     for (String name : NAMES) {
-                        if (searchText != null && name.toUpperCase().startsWith(searchText.toUpperCase())) {
+                        if (name.toUpperCase().startsWith(searchText.toUpperCase())) {
                             SelectParser.OptionItem optionItem = new SelectParser.OptionItem();
                             optionItem.setHtml("<div style='color:blue'>" + name + "</div>");
                             optionItem.setText(name);
                             optionItem.setValue(name);
-                            optionItem.setArrayIndex(arrayIndex);
-                            optionItem.setOptionsIndex(arrayIndex);
-                            optionItem.setDomId("myOption_" + arrayIndex++);
 
                             selectItems.add(optionItem);
                         }
                     }
 
-                    // warn chosen that the filtering is done.
-                    chosen.rebuildResultItems();
+                    // give the complete results to chosen, they are dropped if a newer search has been started.
+                    callback.onResults(selectItems, true);
 
                     // stop the repeating command
                     return false;
                 }
-            }, 10);
+            }, Random.nextInt(500));
+        }
+
+        @Override
+        protected boolean matches(SelectParser.OptionItem item, String searchText, boolean searchContains) {
+            // refine the cached results like the server filters the names
+            return item.getText().toUpperCase().startsWith(searchText.toUpperCase());
         }
     }
 
@@ -117,6 +112,7 @@ public class CustomFilteringView implements IsWidget {
             public void onAttachOrDetach(AttachEvent attachEvent) {
                 if (attachEvent.isAttached()) {
                     ChosenOptions options = new ChosenOptions();
+                    options.setResultsCacheSize(50);
                     options.setResultFilter(new ServerSideSimulatorResultFilter());
                     final ChosenListBox serverChosenListBox = new ChosenListBox(false, options);
                     serverChosen.setWidget(serverChosenListBox);